@@ -0,0 +1,40 @@
+package com.example.crm.benchmark;
+
+import org.openjdk.jmh.Main;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * ベンチマーク起動クラス
+ *
+ * JMH のコマンドライン引数をそのまま受け付ける。結果ファイルの指定（-rf / -rff）がなければ
+ * 実行間で比較できるよう JSON 形式で results/jmh-yyyyMMdd-HHmmss.json に書き出す。
+ */
+public class BenchmarkRunner {
+    
+    public static void main(String[] args) throws Exception {
+        List<String> options = new ArrayList<>(Arrays.asList(args));
+        if (!options.contains("-rf")) {
+            options.add("-rf");
+            options.add("json");
+        }
+        if (!options.contains("-rff")) {
+            Files.createDirectories(Path.of("results"));
+            String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+            options.add("-rff");
+            options.add("results/jmh-" + timestamp + "." + resultExtension(options));
+        }
+        Main.main(options.toArray(new String[0]));
+    }
+    
+    private static String resultExtension(List<String> options) {
+        int index = options.indexOf("-rf");
+        return options.get(index + 1).toLowerCase();
+    }
+}
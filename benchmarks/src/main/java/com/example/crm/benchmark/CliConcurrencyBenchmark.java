@@ -0,0 +1,113 @@
+package com.example.crm.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static com.example.crm.benchmark.CliCustomerManagerBenchmark.CLOSE;
+import static com.example.crm.benchmark.CliCustomerManagerBenchmark.GET_CUSTOMER;
+import static com.example.crm.benchmark.CliCustomerManagerBenchmark.NEW_MANAGER;
+import static com.example.crm.benchmark.CliCustomerManagerBenchmark.SEARCH_BY_NAME;
+import static com.example.crm.benchmark.CliCustomerManagerBenchmark.UPDATE_CUSTOMER;
+
+/**
+ * CLI版 CustomerManager を複数スレッドで共有したときのスループット
+ *
+ * サーバーモード（CRMServer）と同じく 1 つの CustomerManager に対して、
+ * 参照・検索のスレッドと更新のスレッドを同時に動かす。スレッド数は -tg で変更できる
+ * （例: -tg 7,1 で参照 7 スレッド + 更新 1 スレッド）。
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g"})
+public class CliConcurrencyBenchmark {
+    
+    @Param({"100000"})
+    public int size;
+    
+    /** 検索キーワード（SyntheticDataset.KEYWORDS 参照） */
+    @Param({"佐藤"})
+    public String keyword;
+    
+    private Path dataFile;
+    private Object manager;
+    private PrintStream originalOut;
+    
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        originalOut = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        dataFile = CliCustomerManagerBenchmark.writeDataFile(size);
+        manager = NEW_MANAGER.invoke(dataFile.toString());
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() throws Throwable {
+        CLOSE.invoke(manager);
+        System.setOut(originalOut);
+        CliCustomerManagerBenchmark.deleteDataFiles(dataFile);
+    }
+    
+    /**
+     * 顧客詳細の表示（ID で取得）と更新
+     */
+    @Benchmark
+    @Group("lookupUpdate")
+    @GroupThreads(3)
+    public Object lookup() throws Throwable {
+        return GET_CUSTOMER.invoke(manager, randomId());
+    }
+    
+    @Benchmark
+    @Group("lookupUpdate")
+    @GroupThreads(1)
+    public boolean lookupUpdateWriter() throws Throwable {
+        return update();
+    }
+    
+    /**
+     * 名前での検索と更新（更新のたびに走査対象が作り直される）
+     */
+    @Benchmark
+    @Group("searchUpdate")
+    @GroupThreads(3)
+    public Object search() throws Throwable {
+        return SEARCH_BY_NAME.invoke(manager, keyword);
+    }
+    
+    @Benchmark
+    @Group("searchUpdate")
+    @GroupThreads(1)
+    public boolean searchUpdateWriter() throws Throwable {
+        return update();
+    }
+    
+    private boolean update() throws Throwable {
+        return (boolean) UPDATE_CUSTOMER.invoke(manager, randomId(), null, null, null, null, null, "bench");
+    }
+    
+    private int randomId() {
+        return ThreadLocalRandom.current().nextInt(1, size + 1);
+    }
+}
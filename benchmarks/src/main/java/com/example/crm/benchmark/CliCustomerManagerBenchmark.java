@@ -0,0 +1,199 @@
+package com.example.crm.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CLI版 CustomerManager のベンチマーク
+ *
+ * CLI版はデフォルトパッケージのため import できず、MethodHandle 経由で呼び出す。
+ * 合成データを customers.dat と同じ形式で一時ファイルに書き出し、
+ * 検索・統計・読み込み・更新（保存）を計測する。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g"})
+public class CliCustomerManagerBenchmark {
+    
+    private static final MethodHandle NEW_CUSTOMER;
+    private static final MethodHandle SET_NEXT_ID;
+    static final MethodHandle NEW_MANAGER;
+    static final MethodHandle SEARCH_ALL;
+    static final MethodHandle SEARCH_BY_NAME;
+    private static final MethodHandle SEARCH_BY_COMPANY;
+    private static final MethodHandle SEARCH_BY_EMAIL;
+    private static final MethodHandle SHOW_STATISTICS;
+    static final MethodHandle UPDATE_CUSTOMER;
+    static final MethodHandle CLOSE;
+    static final MethodHandle GET_CUSTOMER;
+    private static final MethodHandle CREATE_SNAPSHOT_WRITER;
+    private static final MethodHandle SNAPSHOT_WRITE;
+    private static final MethodHandle SNAPSHOT_COMMIT;
+    private static final MethodHandle SNAPSHOT_CLOSE;
+    
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            Class<?> customer = Class.forName("Customer");
+            Class<?> manager = Class.forName("CustomerManager");
+            MethodType search = MethodType.methodType(List.class, String.class);
+            NEW_CUSTOMER = lookup.findConstructor(customer, MethodType.methodType(void.class,
+                String.class, String.class, String.class, String.class, String.class));
+            SET_NEXT_ID = lookup.findStatic(customer, "setNextId", MethodType.methodType(void.class, int.class));
+            NEW_MANAGER = lookup.findConstructor(manager, MethodType.methodType(void.class, String.class));
+            SEARCH_ALL = lookup.findVirtual(manager, "searchAll", search);
+            SEARCH_BY_NAME = lookup.findVirtual(manager, "searchByName", search);
+            SEARCH_BY_COMPANY = lookup.findVirtual(manager, "searchByCompany", search);
+            SEARCH_BY_EMAIL = lookup.findVirtual(manager, "searchByEmail", search);
+            SHOW_STATISTICS = lookup.findVirtual(manager, "showStatistics", MethodType.methodType(void.class));
+            UPDATE_CUSTOMER = lookup.findVirtual(manager, "updateCustomer", MethodType.methodType(boolean.class,
+                int.class, String.class, String.class, String.class, String.class, String.class, String.class));
+            CLOSE = lookup.findVirtual(manager, "close", MethodType.methodType(void.class));
+            GET_CUSTOMER = lookup.findVirtual(manager, "getCustomer", MethodType.methodType(customer, int.class));
+            Class<?> snapshotFile = Class.forName("CustomerSnapshotFile");
+            Class<?> snapshotWriter = Class.forName("CustomerSnapshotFile$Writer");
+            CREATE_SNAPSHOT_WRITER = lookup.findStatic(snapshotFile, "createWriter",
+                MethodType.methodType(snapshotWriter, Path.class, long.class));
+            SNAPSHOT_WRITE = lookup.findVirtual(snapshotWriter, "write", MethodType.methodType(void.class, customer));
+            SNAPSHOT_COMMIT = lookup.findVirtual(snapshotWriter, "commit", MethodType.methodType(void.class));
+            SNAPSHOT_CLOSE = lookup.findVirtual(snapshotWriter, "close", MethodType.methodType(void.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+    
+    @Param({"10000", "100000", "1000000"})
+    public int size;
+    
+    /** 検索キーワード（SyntheticDataset.KEYWORDS 参照） */
+    @Param({"佐藤", "商事", "suzuki", "090-12"})
+    public String keyword;
+    
+    private Path dataFile;
+    private Object manager;
+    private PrintStream originalOut;
+    
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        // CLI版はメッセージを標準出力に書くため、計測中は捨てる
+        originalOut = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        
+        dataFile = writeDataFile(size);
+        manager = NEW_MANAGER.invoke(dataFile.toString());
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() throws Throwable {
+        CLOSE.invoke(manager);
+        System.setOut(originalOut);
+        deleteDataFiles(dataFile);
+    }
+    
+    /**
+     * CLI版と同じ形式のスナップショット（customers.dat）を ID 昇順で一時ファイルに書き出す
+     */
+    static Path writeDataFile(int size) throws Throwable {
+        Path dataFile = Files.createTempFile("crm-bench-", ".dat");
+        SET_NEXT_ID.invoke(1);
+        Object writer = CREATE_SNAPSHOT_WRITER.invoke(dataFile, 0L);
+        try {
+            SyntheticDataset.generate(size, row -> {
+                try {
+                    SNAPSHOT_WRITE.invoke(writer, NEW_CUSTOMER.invoke(row.name, row.email, row.phone, row.company, row.address));
+                } catch (Throwable e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            SNAPSHOT_COMMIT.invoke(writer);
+        } finally {
+            SNAPSHOT_CLOSE.invoke(writer);
+        }
+        return dataFile;
+    }
+    
+    /**
+     * スナップショットと更新ログ（<データファイル名>.<世代>.log）を削除
+     */
+    static void deleteDataFiles(Path dataFile) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dataFile.getParent(),
+                dataFile.getFileName() + "*")) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+    
+    @Benchmark
+    public Object searchAll() throws Throwable {
+        return SEARCH_ALL.invoke(manager, keyword);
+    }
+    
+    @Benchmark
+    public Object searchByName() throws Throwable {
+        return SEARCH_BY_NAME.invoke(manager, keyword);
+    }
+    
+    @Benchmark
+    public Object searchByCompany() throws Throwable {
+        return SEARCH_BY_COMPANY.invoke(manager, keyword);
+    }
+    
+    @Benchmark
+    public Object searchByEmail() throws Throwable {
+        return SEARCH_BY_EMAIL.invoke(manager, keyword);
+    }
+    
+    @Benchmark
+    public void showStatistics() throws Throwable {
+        SHOW_STATISTICS.invoke(manager);
+    }
+    
+    /**
+     * customers.dat のメモリマップと更新ログの再生（起動時）
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Object load() throws Throwable {
+        Object loaded = NEW_MANAGER.invoke(dataFile.toString());
+        CLOSE.invoke(loaded);
+        return loaded;
+    }
+    
+    /**
+     * 1 件更新して保存
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public boolean updateAndSave() throws Throwable {
+        int id = ThreadLocalRandom.current().nextInt(1, size + 1);
+        return (boolean) UPDATE_CUSTOMER.invoke(manager, id, null, null, null, null, null, "bench");
+    }
+}
@@ -0,0 +1,383 @@
+package com.example.crm.benchmark;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Web版の負荷試験 - プラットフォームスレッドと仮想スレッドでリクエスト処理を比較する
+ *
+ * モードごとに Web版の jar を別プロセスで起動し（インメモリ H2 に合成データを一括登録）、
+ * 検索（/customers/search）と詳細（/customers/{id}）に同時接続数ぶんのリクエストを送り続ける。
+ * スループット・p50 / p99 レイテンシと、計測中のヒープ使用量・プラットフォームスレッド数・RSS の最大値を表示し、
+ * results/load-yyyyMMdd-HHmmss.csv に書き出す。仮想スレッドのモードは Java 21 以降で起動した場合のみ有効。
+ *
+ *   java -cp target/crm-benchmarks.jar com.example.crm.benchmark.HttpLoadTest --concurrency 500 --duration 30
+ */
+public class HttpLoadTest {
+    
+    private static final Pattern METRIC_VALUE = Pattern.compile("\"statistic\"\\s*:\\s*\"VALUE\"\\s*,\\s*\"value\"\\s*:\\s*([0-9.Ee+-]+)");
+    private static final Pattern VM_RSS = Pattern.compile("VmRSS:\\s+(\\d+) kB");
+    
+    private final Map<String, String> options = new LinkedHashMap<>();
+    private final HttpClient client = HttpClient.newBuilder()
+        .connectTimeout(Duration.ofSeconds(10))
+        .build();
+    
+    public static void main(String[] args) throws Exception {
+        HttpLoadTest test = new HttpLoadTest();
+        test.options.put("modes", "platform,virtual");
+        test.options.put("concurrency", "500");
+        test.options.put("duration", "30");
+        test.options.put("warmup", "10");
+        test.options.put("size", "10000");
+        test.options.put("keyword", SyntheticDataset.KEYWORDS[0]);
+        test.options.put("port", "18080");
+        test.options.put("management-port", "18081");
+        test.options.put("jar", "../target/crm-web-1.0.0.jar");
+        test.options.put("java", Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        test.options.put("heap", "1g");
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--") || !test.options.containsKey(args[i].substring(2))) {
+                throw new IllegalArgumentException("不明なオプションです: " + args[i]);
+            }
+            test.options.put(args[i].substring(2), args[i + 1]);
+        }
+        test.run();
+    }
+    
+    private void run() throws Exception {
+        List<Result> results = new ArrayList<>();
+        for (String mode : option("modes").split(",")) {
+            results.addAll(runMode(mode.trim()));
+        }
+        
+        System.out.println();
+        System.out.println(String.format("%-9s %-7s %9s %9s %9s %9s %7s %10s %8s %9s",
+            "mode", "target", "requests", "req/s", "p50(ms)", "p99(ms)", "errors", "heap(MB)", "threads", "RSS(MB)"));
+        for (Result result : results) {
+            System.out.println(result.format());
+        }
+        
+        Files.createDirectories(Path.of("results"));
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+        Path csv = Path.of("results", "load-" + timestamp + ".csv");
+        List<String> lines = new ArrayList<>();
+        lines.add("mode,target,concurrency,requests,throughput,p50_ms,p99_ms,errors,heap_max_mb,platform_threads_max,rss_max_mb");
+        for (Result result : results) {
+            lines.add(result.csv(option("concurrency")));
+        }
+        Files.write(csv, lines, StandardCharsets.UTF_8);
+        System.out.println("\n結果を " + csv + " に保存しました");
+    }
+    
+    /**
+     * 1 モード分: アプリを起動してデータを登録し、検索と詳細を順に計測する
+     */
+    private List<Result> runMode(String mode) throws Exception {
+        boolean virtual = mode.equals("virtual");
+        if (virtual && Runtime.version().feature() < 21 && option("java").startsWith(System.getProperty("java.home"))) {
+            System.out.println("⚠ Java " + Runtime.version().feature() + " では仮想スレッドは使われません（--java で Java 21 以降を指定してください）");
+        }
+        List<String> command = new ArrayList<>(Arrays.asList(
+            option("java"), "-Xms" + option("heap"), "-Xmx" + option("heap"), "-jar", option("jar"),
+            "--server.port=" + option("port"),
+            "--management.server.port=" + option("management-port"),
+            "--spring.datasource.url=jdbc:h2:mem:load-" + mode + ";DB_CLOSE_DELAY=-1",
+            "--spring.threads.virtual.enabled=" + virtual,
+            "--spring.jpa.show-sql=false",
+            "--logging.level.root=WARN"));
+        Path log = Files.createTempFile("crm-load-" + mode + "-", ".log");
+        Process app = new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(log.toFile()).start();
+        System.out.println("[" + mode + "] アプリを起動しています（ログ: " + log + "）");
+        try {
+            waitForHealth(app);
+            seed();
+            List<Result> results = new ArrayList<>();
+            int size = Integer.parseInt(option("size"));
+            String keyword = URLEncoder.encode(option("keyword"), StandardCharsets.UTF_8);
+            results.add(measure(mode, "search", app, () -> "/customers/search?searchType=all&keyword=" + keyword));
+            results.add(measure(mode, "detail", app, () -> "/customers/" + ThreadLocalRandom.current().nextInt(1, size + 1)));
+            return results;
+        } finally {
+            app.destroy();
+            if (!app.waitFor(30, TimeUnit.SECONDS)) {
+                app.destroyForcibly();
+            }
+        }
+    }
+    
+    private void waitForHealth(Process app) throws Exception {
+        URI health = managementUri("/actuator/health");
+        long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(3);
+        while (System.nanoTime() < deadline) {
+            if (!app.isAlive()) {
+                throw new IllegalStateException("アプリが起動できませんでした（終了コード " + app.exitValue() + "）");
+            }
+            try {
+                HttpResponse<String> response = client.send(HttpRequest.newBuilder(health).build(),
+                    HttpResponse.BodyHandlers.ofString());
+                if (response.statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException e) {
+                // 起動中
+            }
+            Thread.sleep(500);
+        }
+        throw new IllegalStateException("アプリの起動がタイムアウトしました");
+    }
+    
+    /**
+     * 合成データを CSV の一括登録（/customers/import）で投入する
+     */
+    private void seed() throws Exception {
+        int size = Integer.parseInt(option("size"));
+        Path csv = Files.createTempFile("crm-load-", ".csv");
+        try {
+            SyntheticDataset.writeCsv(size, csv);
+            String boundary = "----crm-load-" + System.nanoTime();
+            byte[] head = ("--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"customers.csv\"\r\n"
+                + "Content-Type: text/csv\r\n\r\n").getBytes(StandardCharsets.UTF_8);
+            byte[] tail = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8);
+            HttpRequest request = HttpRequest.newBuilder(uri("/customers/import"))
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(HttpRequest.BodyPublishers.concat(
+                    HttpRequest.BodyPublishers.ofByteArray(head),
+                    HttpRequest.BodyPublishers.ofFile(csv),
+                    HttpRequest.BodyPublishers.ofByteArray(tail)))
+                .build();
+            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+            if (response.statusCode() >= 400) {
+                throw new IllegalStateException("データの一括登録に失敗しました（HTTP " + response.statusCode() + "）");
+            }
+        } finally {
+            Files.deleteIfExists(csv);
+        }
+    }
+    
+    /**
+     * ウォームアップの後、同時接続数ぶんのクライアントで duration 秒間リクエストを送り続ける
+     */
+    private Result measure(String mode, String target, Process app, PathSupplier path) throws Exception {
+        int concurrency = Integer.parseInt(option("concurrency"));
+        run(concurrency, Integer.parseInt(option("warmup")), path, null);
+        
+        Result result = new Result(mode, target);
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+        sampler.scheduleAtFixedRate(() -> result.sample(app), 0, 500, TimeUnit.MILLISECONDS);
+        long start = System.nanoTime();
+        try {
+            run(concurrency, Integer.parseInt(option("duration")), path, result);
+        } finally {
+            result.elapsedNanos = System.nanoTime() - start;
+            sampler.shutdown();
+            sampler.awaitTermination(10, TimeUnit.SECONDS);
+        }
+        System.out.println(result.format());
+        return result;
+    }
+    
+    private void run(int concurrency, int seconds, PathSupplier path, Result result) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        List<CompletableFuture<Latencies>> clients = new ArrayList<>(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            clients.add(loop(path, deadline, new Latencies()));
+        }
+        for (CompletableFuture<Latencies> future : clients) {
+            Latencies latencies = future.join();
+            if (result != null) {
+                result.add(latencies);
+            }
+        }
+    }
+    
+    /**
+     * 1 クライアント分: 応答が返ったら次のリクエストを送る（締め切りまで）
+     */
+    private CompletableFuture<Latencies> loop(PathSupplier path, long deadline, Latencies latencies) {
+        if (System.nanoTime() >= deadline) {
+            return CompletableFuture.completedFuture(latencies);
+        }
+        HttpRequest request = HttpRequest.newBuilder(uri(path.next())).timeout(Duration.ofSeconds(60)).build();
+        long start = System.nanoTime();
+        return client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+            .handle((response, error) -> {
+                latencies.add(System.nanoTime() - start, error == null && response.statusCode() == 200);
+                return latencies;
+            })
+            .thenCompose(done -> loop(path, deadline, latencies));
+    }
+    
+    private URI uri(String path) {
+        return URI.create("http://127.0.0.1:" + option("port") + path);
+    }
+    
+    private URI managementUri(String path) {
+        return URI.create("http://127.0.0.1:" + option("management-port") + path);
+    }
+    
+    private String option(String name) {
+        return options.get(name);
+    }
+    
+    private double metric(String name) {
+        try {
+            HttpResponse<String> response = client.send(
+                HttpRequest.newBuilder(managementUri("/actuator/metrics/" + name)).build(),
+                HttpResponse.BodyHandlers.ofString());
+            Matcher matcher = METRIC_VALUE.matcher(response.body());
+            return matcher.find() ? Double.parseDouble(matcher.group(1)) : 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 0;
+        }
+    }
+    
+    private interface PathSupplier {
+        String next();
+    }
+    
+    /**
+     * 1 クライアント分のレイテンシ（ナノ秒）
+     */
+    private static final class Latencies {
+        private long[] values = new long[1024];
+        private int count;
+        private int errors;
+        
+        void add(long nanos, boolean success) {
+            if (count == values.length) {
+                values = Arrays.copyOf(values, count * 2);
+            }
+            values[count++] = nanos;
+            if (!success) {
+                errors++;
+            }
+        }
+    }
+    
+    /**
+     * 1 モード・1 エンドポイント分の計測結果
+     */
+    private final class Result {
+        private final String mode;
+        private final String target;
+        private final List<Latencies> latencies = new ArrayList<>();
+        private long elapsedNanos;
+        private volatile double heapMax;
+        private volatile double threadsMax;
+        private volatile long rssMax;
+        private long[] sorted;
+        
+        Result(String mode, String target) {
+            this.mode = mode;
+            this.target = target;
+        }
+        
+        void add(Latencies client) {
+            latencies.add(client);
+        }
+        
+        /**
+         * アプリのヒープ使用量・プラットフォームスレッド数・RSS を記録（最大値を残す）
+         */
+        void sample(Process app) {
+            heapMax = Math.max(heapMax, metricOrZero("jvm.memory.used?tag=area:heap"));
+            threadsMax = Math.max(threadsMax, metricOrZero("jvm.threads.live"));
+            Path status = Path.of("/proc", String.valueOf(app.pid()), "status");
+            if (Files.isReadable(status)) {
+                try {
+                    Matcher matcher = VM_RSS.matcher(Files.readString(status));
+                    if (matcher.find()) {
+                        rssMax = Math.max(rssMax, Long.parseLong(matcher.group(1)) * 1024);
+                    }
+                } catch (IOException e) {
+                    // 終了済み
+                }
+            }
+        }
+        
+        private double metricOrZero(String name) {
+            try {
+                return metric(name);
+            } catch (UncheckedIOException e) {
+                return 0;
+            }
+        }
+        
+        int requests() {
+            int requests = 0;
+            for (Latencies client : latencies) {
+                requests += client.count;
+            }
+            return requests;
+        }
+        
+        int errors() {
+            int errors = 0;
+            for (Latencies client : latencies) {
+                errors += client.errors;
+            }
+            return errors;
+        }
+        
+        double throughput() {
+            return requests() / (elapsedNanos / 1_000_000_000.0);
+        }
+        
+        double percentileMillis(double percentile) {
+            if (sorted == null) {
+                sorted = new long[requests()];
+                int offset = 0;
+                for (Latencies client : latencies) {
+                    System.arraycopy(client.values, 0, sorted, offset, client.count);
+                    offset += client.count;
+                }
+                Arrays.sort(sorted);
+            }
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+            return sorted[Math.max(0, index)] / 1_000_000.0;
+        }
+        
+        String format() {
+            return String.format("%-9s %-7s %9d %9.0f %9.1f %9.1f %7d %10.0f %8.0f %9.0f",
+                mode, target, requests(), throughput(), percentileMillis(50), percentileMillis(99), errors(),
+                heapMax / (1024 * 1024), threadsMax, rssMax / (1024.0 * 1024));
+        }
+        
+        String csv(String concurrency) {
+            return String.format("%s,%s,%s,%d,%.1f,%.2f,%.2f,%d,%.0f,%.0f,%.0f",
+                mode, target, concurrency, requests(), throughput(), percentileMillis(50), percentileMillis(99), errors(),
+                heapMax / (1024 * 1024), threadsMax, rssMax / (1024.0 * 1024));
+        }
+    }
+}
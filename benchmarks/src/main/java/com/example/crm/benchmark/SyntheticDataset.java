@@ -0,0 +1,116 @@
+package com.example.crm.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * ベンチマーク用の合成顧客データ
+ *
+ * 固定シードの乱数で生成するため、同じ件数なら毎回同じデータになる。
+ * 会社名は上位の会社に顧客が偏るように分布させている。
+ */
+public final class SyntheticDataset {
+    
+    /** 乱数シード（変更すると過去の結果と比較できなくなる） */
+    public static final long SEED = 20240101L;
+    
+    /** 検索キーワード（名前・会社名・メール・電話番号・短い語・該当なし） */
+    public static final String[] KEYWORDS = {"佐藤", "商事", "suzuki", "090-12", "田", "該当なしキーワード"};
+    
+    private static final String[][] SURNAMES = {
+        {"佐藤", "sato"}, {"鈴木", "suzuki"}, {"高橋", "takahashi"}, {"田中", "tanaka"},
+        {"伊藤", "ito"}, {"渡辺", "watanabe"}, {"山本", "yamamoto"}, {"中村", "nakamura"},
+        {"小林", "kobayashi"}, {"加藤", "kato"}, {"吉田", "yoshida"}, {"山田", "yamada"},
+        {"佐々木", "sasaki"}, {"山口", "yamaguchi"}, {"松本", "matsumoto"}, {"井上", "inoue"}
+    };
+    
+    private static final String[][] GIVEN_NAMES = {
+        {"太郎", "taro"}, {"花子", "hanako"}, {"一郎", "ichiro"}, {"美咲", "misaki"},
+        {"健太", "kenta"}, {"陽菜", "hina"}, {"翔", "sho"}, {"結衣", "yui"},
+        {"大輔", "daisuke"}, {"さくら", "sakura"}, {"拓也", "takuya"}, {"愛", "ai"}
+    };
+    
+    private static final String[] COMPANY_WORDS = {
+        "サンプル", "東京", "大阪", "未来", "グローバル", "テクノ", "日本", "アジア", "ネクスト", "フロンティア"
+    };
+    
+    private static final String[] COMPANY_TYPES = {"商事", "工業", "システムズ", "物産", "ホールディングス"};
+    
+    private static final String[] DOMAINS = {"example.com", "example.jp", "example.co.jp", "mail.example.net"};
+    
+    private static final String[] PREFECTURES = {"東京都", "大阪府", "神奈川県", "愛知県", "福岡県", "北海道"};
+    
+    private SyntheticDataset() {
+    }
+    
+    /**
+     * 1 件分のデータ
+     */
+    public static final class Row {
+        public final String name;
+        public final String email;
+        public final String phone;
+        public final String company;
+        public final String address;
+        
+        Row(String name, String email, String phone, String company, String address) {
+            this.name = name;
+            this.email = email;
+            this.phone = phone;
+            this.company = company;
+            this.address = address;
+        }
+    }
+    
+    /**
+     * size 件のデータを生成順に受け取る
+     */
+    public interface RowConsumer {
+        void accept(Row row) throws IOException;
+    }
+    
+    public static void generate(int size, RowConsumer consumer) throws IOException {
+        Random random = new Random(SEED);
+        int companies = Math.max(10, size / 50);
+        for (int i = 0; i < size; i++) {
+            String[] surname = SURNAMES[random.nextInt(SURNAMES.length)];
+            String[] given = GIVEN_NAMES[random.nextInt(GIVEN_NAMES.length)];
+            
+            // 3 乗で小さい番号（上位の会社）に偏らせる
+            int company = (int) (Math.pow(random.nextDouble(), 3) * companies);
+            String companyName = COMPANY_WORDS[company % COMPANY_WORDS.length] + (company / COMPANY_WORDS.length)
+                + COMPANY_TYPES[company % COMPANY_TYPES.length] + "株式会社";
+            
+            String email = given[1] + "." + surname[1] + i + "@" + DOMAINS[random.nextInt(DOMAINS.length)];
+            String phone = String.format("0%d0-%04d-%04d", 7 + random.nextInt(3), random.nextInt(10000), i % 10000);
+            String address = PREFECTURES[random.nextInt(PREFECTURES.length)] + "サンプル町" + (1 + random.nextInt(50));
+            
+            consumer.accept(new Row(surname[0] + " " + given[0], email, phone, companyName, address));
+        }
+    }
+    
+    /**
+     * 一括登録用の CSV ファイルとして書き出す
+     */
+    public static void writeCsv(int size, Path file) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("name,email,phone,company,address\n");
+            generate(size, row -> {
+                writer.write(row.name);
+                writer.write(',');
+                writer.write(row.email);
+                writer.write(',');
+                writer.write(row.phone);
+                writer.write(',');
+                writer.write(row.company);
+                writer.write(',');
+                writer.write(row.address);
+                writer.write('\n');
+            });
+        }
+    }
+}
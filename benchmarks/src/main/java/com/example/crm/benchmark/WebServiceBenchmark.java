@@ -0,0 +1,179 @@
+package com.example.crm.benchmark;
+
+import com.example.crm.CrmApplication;
+import com.example.crm.dto.CompanyCount;
+import com.example.crm.dto.CustomerPage;
+import com.example.crm.dto.CustomerSummary;
+import com.example.crm.entity.Customer;
+import com.example.crm.io.CustomerFileFormat;
+import com.example.crm.repository.CustomerMatchMode;
+import com.example.crm.repository.CustomerRepository;
+import com.example.crm.repository.CustomerSearchType;
+import com.example.crm.service.CustomerImportService;
+import com.example.crm.service.CustomerService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Web版サービス層のベンチマーク
+ *
+ * 組み込み H2（インメモリ）に合成データを一括登録し、一覧・検索・統計・更新を計測する。
+ * 検索インデックスと二次キャッシュは @Param で切り替えられる。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g"})
+public class WebServiceBenchmark {
+    
+    @Param({"10000", "100000", "1000000"})
+    public int size;
+    
+    /** 検索キーワード（SyntheticDataset.KEYWORDS 参照） */
+    @Param({"佐藤", "商事", "suzuki", "090-12"})
+    public String keyword;
+    
+    /** 検索インデックスを使うか */
+    @Param({"true", "false"})
+    public boolean searchIndex;
+    
+    /** 二次キャッシュ・クエリキャッシュを使うか */
+    @Param({"true"})
+    public boolean cache;
+    
+    private ConfigurableApplicationContext context;
+    private CustomerService customerService;
+    private CustomerRepository customerRepository;
+    private Long minId;
+    private Long maxId;
+    
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        context = new SpringApplicationBuilder(CrmApplication.class)
+            .web(WebApplicationType.NONE)
+            .bannerMode(Banner.Mode.OFF)
+            // application.properties より優先させるためコマンドライン引数として渡す
+            .run(
+                "--spring.datasource.url=jdbc:h2:mem:bench-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                "--spring.jpa.hibernate.ddl-auto=create",
+                "--spring.jpa.show-sql=false",
+                "--spring.h2.console.enabled=false",
+                "--logging.level.root=WARN",
+                "--logging.level.com.example.crm=WARN",
+                "--crm.search.index.enabled=" + searchIndex,
+                "--spring.jpa.properties.hibernate.cache.use_second_level_cache=" + cache,
+                "--spring.jpa.properties.hibernate.cache.use_query_cache=" + cache);
+        customerService = context.getBean(CustomerService.class);
+        customerRepository = context.getBean(CustomerRepository.class);
+        
+        Path csv = Files.createTempFile("crm-bench-", ".csv");
+        try {
+            SyntheticDataset.writeCsv(size, csv);
+            try (InputStream input = Files.newInputStream(csv)) {
+                context.getBean(CustomerImportService.class).importCustomers(input, CustomerFileFormat.CSV);
+            }
+        } finally {
+            Files.deleteIfExists(csv);
+        }
+        
+        // 検索インデックスと会社別集計は一括登録のイベントで更新済み
+        List<CustomerSummary> first = customerRepository.findSummariesAfterId(0L, PageRequest.of(0, 1));
+        minId = first.get(0).getId();
+        maxId = minId + size - 1;
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (context != null) {
+            context.close();
+        }
+    }
+    
+    @Benchmark
+    public CustomerPage listFirstPage() {
+        return customerService.getCustomerPage(CustomerSearchType.ALL, null, null, null,
+            CustomerService.DEFAULT_PAGE_SIZE);
+    }
+    
+    @Benchmark
+    public CustomerPage searchFirstPage() {
+        return customerService.getCustomerPage(CustomerSearchType.ALL, keyword, null, null,
+            CustomerService.DEFAULT_PAGE_SIZE);
+    }
+    
+    /**
+     * 名前の前方一致（検索キー列のインデックスを範囲検索）
+     */
+    @Benchmark
+    public CustomerPage prefixSearchByNameFirstPage() {
+        return customerService.getCustomerPage(CustomerSearchType.NAME, CustomerMatchMode.PREFIX, keyword, null, null,
+            CustomerService.DEFAULT_PAGE_SIZE);
+    }
+    
+    @Benchmark
+    public List<CustomerSummary> serviceSearchAll() {
+        return customerService.searchAll(keyword);
+    }
+    
+    @Benchmark
+    public List<CustomerSummary> serviceSearchByName() {
+        return customerService.searchByName(keyword);
+    }
+    
+    @Benchmark
+    public List<CustomerSummary> repositorySearchAll() {
+        return customerRepository.searchAll(keyword);
+    }
+    
+    @Benchmark
+    public List<Object[]> repositoryCountByCompany() {
+        return customerRepository.countByCompany();
+    }
+    
+    @Benchmark
+    public List<CompanyCount> topCompanies() {
+        return customerService.getTopCompanies(10);
+    }
+    
+    @Benchmark
+    public Customer findById() {
+        return customerService.getCustomerById(randomId()).orElseThrow();
+    }
+    
+    @Benchmark
+    public Customer updateCustomer() {
+        Customer customer = customerService.getCustomerById(randomId()).orElseThrow();
+        customer.setNotes("bench " + System.nanoTime());
+        return customerService.saveCustomer(customer);
+    }
+    
+    private Long randomId() {
+        return ThreadLocalRandom.current().nextLong(minId, maxId + 1);
+    }
+}
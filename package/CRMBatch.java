@@ -0,0 +1,198 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * CRMシステムの一括処理モード - コマンドを 1 行ずつ読んで CustomerManager に適用する
+ *
+ * 1 行に 1 コマンド、項目はタブ区切り（UTF-8）。空行と # で始まる行は読み飛ばす。
+ *   add     名前 メールアドレス 電話番号 会社名 住所
+ *   update  ID 名前 メールアドレス 電話番号 会社名 住所 メモ（空の項目は変更しない。メモは省略可）
+ *   delete  ID
+ *   search  all|name|company|email キーワード
+ *
+ * 変更は更新ログに 1 件ずつ書かずにためておき、最後に 1 回（commitEvery を指定した場合は
+ * その件数ごとに）まとめて書き込んで同期する。
+ */
+public class CRMBatch {
+    private final CustomerManager manager;
+    private final PrintStream out;
+    private final int commitEvery;
+    private int added;
+    private int updated;
+    private int deleted;
+    private int searched;
+    private int errors;
+    private int commits;
+    private int committed;
+    
+    /**
+     * @param commitEvery 変更をまとめて書き込む件数（0 以下なら最後に 1 回だけ）
+     */
+    public CRMBatch(CustomerManager manager, PrintStream out, int commitEvery) {
+        this.manager = manager;
+        this.out = out;
+        this.commitEvery = commitEvery;
+    }
+    
+    /**
+     * 引数（[ファイル | -] [--commit-every 件数]）に従って一括処理を実行（ファイル省略時・- は標準入力）
+     */
+    public static void start(String[] args) throws IOException {
+        String file = "-";
+        int commitEvery = 0;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--commit-every") && i + 1 < args.length) {
+                commitEvery = Integer.parseInt(args[++i]);
+            } else {
+                file = args[i];
+            }
+        }
+        CustomerManager manager = new CustomerManager();
+        try (BufferedReader in = file.equals("-")
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                : Files.newBufferedReader(Paths.get(file), StandardCharsets.UTF_8)) {
+            new CRMBatch(manager, System.out, commitEvery).run(in);
+        } finally {
+            manager.close();
+        }
+    }
+    
+    /**
+     * 入力の終わりまでコマンドを実行し、最後に処理結果を表示
+     */
+    public void run(BufferedReader in) throws IOException {
+        long start = System.nanoTime();
+        int lineNumber = 0;
+        int pending = 0;
+        manager.beginBatch();
+        try {
+            String line;
+            while ((line = in.readLine()) != null) {
+                lineNumber++;
+                if (line.trim().isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                try {
+                    if (execute(line.split("\t", -1))) {
+                        pending++;
+                    }
+                } catch (IllegalArgumentException e) {
+                    errors++;
+                    out.println("✗ " + lineNumber + "行目: " + e.getMessage());
+                }
+                if (commitEvery > 0 && pending >= commitEvery) {
+                    commit(manager.commitBatch());
+                    pending = 0;
+                }
+            }
+        } finally {
+            commit(manager.endBatch());
+        }
+        showSummary(System.nanoTime() - start);
+    }
+    
+    /**
+     * 1 コマンドを実行し、顧客データを変更した場合は true を返す
+     */
+    private boolean execute(String[] fields) {
+        switch (fields[0].trim()) {
+            case "add":
+                requireFields(fields, 6);
+                if (fields[1].isEmpty() || fields[2].isEmpty()) {
+                    throw new IllegalArgumentException("名前とメールアドレスは必須です");
+                }
+                manager.addCustomer(fields[1], fields[2], fields[3], fields[4], fields[5]);
+                added++;
+                return true;
+            case "update":
+                requireFields(fields, 7);
+                int id = parseId(fields[1]);
+                String notes = fields.length > 7 ? fields[7] : null;
+                if (!manager.updateCustomer(id, fields[2], fields[3], fields[4], fields[5], fields[6], notes)) {
+                    throw new IllegalArgumentException("顧客が見つかりません: " + id);
+                }
+                updated++;
+                return true;
+            case "delete":
+                requireFields(fields, 2);
+                int deleteId = parseId(fields[1]);
+                if (!manager.deleteCustomer(deleteId)) {
+                    throw new IllegalArgumentException("顧客が見つかりません: " + deleteId);
+                }
+                deleted++;
+                return true;
+            case "search":
+                requireFields(fields, 3);
+                search(fields[1].trim(), fields[2].trim());
+                searched++;
+                return false;
+            default:
+                throw new IllegalArgumentException("不明なコマンドです: " + fields[0]);
+        }
+    }
+    
+    private void search(String target, String keyword) {
+        if (keyword.isEmpty()) {
+            throw new IllegalArgumentException("キーワードを入力してください");
+        }
+        List<Customer> results;
+        switch (target) {
+            case "all":
+                results = manager.searchAll(keyword);
+                break;
+            case "name":
+                results = manager.searchByName(keyword);
+                break;
+            case "company":
+                results = manager.searchByCompany(keyword);
+                break;
+            case "email":
+                results = manager.searchByEmail(keyword);
+                break;
+            default:
+                throw new IllegalArgumentException("無効な検索対象です: " + target);
+        }
+        out.println("検索結果（" + target + ": " + keyword + "）: " + results.size() + "件");
+        results.forEach(out::println);
+    }
+    
+    private static void requireFields(String[] fields, int count) {
+        if (fields.length < count) {
+            throw new IllegalArgumentException("項目が足りません（" + fields[0].trim() + " は " + (count - 1) + " 項目）");
+        }
+    }
+    
+    private static int parseId(String value) {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("無効なIDです: " + value);
+        }
+    }
+    
+    private void commit(int count) {
+        if (count > 0) {
+            commits++;
+            committed += count;
+        }
+    }
+    
+    private void showSummary(long elapsedNanos) {
+        int total = added + updated + deleted + searched;
+        double seconds = elapsedNanos / 1_000_000_000.0;
+        out.println("\n========== 一括処理結果 ==========");
+        out.println("処理件数: " + total + "件（登録 " + added + " / 更新 " + updated
+            + " / 削除 " + deleted + " / 検索 " + searched + "）");
+        out.println("エラー: " + errors + "件");
+        out.println("保存: " + commits + "回（" + committed + "件の変更）");
+        out.println(String.format("経過時間: %.3f秒", seconds));
+        out.println(String.format("スループット: %.0f件/秒", seconds > 0 ? total / seconds : 0));
+        out.println("==================================\n");
+    }
+}
@@ -0,0 +1,130 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Scanner;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * CRMシステムのサーバーモード - 1 つの CustomerManager を複数のクライアントで共有する
+ *
+ * 127.0.0.1 で待ち受け、接続ごとに CRMSystem のメニューを提供する（nc や telnet で接続、UTF-8）。
+ * 接続ごとに 1 スレッドを使い、同時接続数が crm.server.max-clients（既定: 64）を超えた接続は断る。
+ */
+public class CRMServer implements Closeable {
+    public static final int DEFAULT_PORT = 9090;
+    private static final int MAX_CLIENTS = Integer.getInteger("crm.server.max-clients", 64);
+    private static final String CHARSET = "UTF-8";
+    private final CustomerManager manager;
+    private final ServerSocket serverSocket;
+    private final ThreadPoolExecutor sessions;
+    private final Set<Socket> clients = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger sessionCount = new AtomicInteger();
+    
+    public CRMServer(CustomerManager manager, int port) throws IOException {
+        this.manager = manager;
+        this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        this.sessions = new ThreadPoolExecutor(0, MAX_CLIENTS, 60, TimeUnit.SECONDS, new SynchronousQueue<>(), r -> {
+            Thread thread = new Thread(r, "crm-session-" + sessionCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    /**
+     * データファイル（customers.dat）を読み込んでサーバーを起動（終了するまで戻らない）
+     */
+    public static void start(int port) throws IOException {
+        CustomerManager manager = new CustomerManager();
+        CRMServer server = new CRMServer(manager, port);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            manager.close();
+        }, "crm-shutdown"));
+        System.out.println("✓ CRMサーバーを起動しました: 127.0.0.1:" + server.getPort() + "（Ctrl+C で終了）");
+        server.serve();
+    }
+    
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+    
+    /**
+     * 接続を受け付ける（close() されるまで戻らない）
+     */
+    public void serve() {
+        while (!serverSocket.isClosed()) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    System.err.println("接続エラー: " + e.getMessage());
+                }
+                continue;
+            }
+            try {
+                sessions.execute(() -> session(socket));
+            } catch (RejectedExecutionException e) {
+                reject(socket);
+            }
+        }
+    }
+    
+    /**
+     * 1 クライアント分のメニューを提供
+     */
+    private void session(Socket socket) {
+        clients.add(socket);
+        try (Socket client = socket;
+             PrintStream out = new PrintStream(client.getOutputStream(), true, CHARSET)) {
+            new CRMSystem(manager, new Scanner(client.getInputStream(), CHARSET), out).run();
+        } catch (IOException e) {
+            System.err.println("セッションエラー: " + e.getMessage());
+        } finally {
+            clients.remove(socket);
+        }
+    }
+    
+    private void reject(Socket socket) {
+        try (Socket client = socket;
+             PrintStream out = new PrintStream(client.getOutputStream(), true, CHARSET)) {
+            out.println("✗ 接続数が上限（" + MAX_CLIENTS + "）に達しています。しばらくしてから接続してください。");
+        } catch (IOException e) {
+            System.err.println("接続エラー: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 受け付けを止め、接続中のクライアントを切断する
+     */
+    @Override
+    public void close() {
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            System.err.println("サーバー停止エラー: " + e.getMessage());
+        }
+        for (Socket client : clients) {
+            try {
+                client.close();
+            } catch (IOException e) {
+                // 切断済み
+            }
+        }
+        sessions.shutdown();
+        try {
+            sessions.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
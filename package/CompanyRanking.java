@@ -0,0 +1,103 @@
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * 会社別の顧客数 - 登録・更新・削除のたびに増減させ、顧客数の多い順に並べておく
+ *
+ * 上位 N 社の取得は O(N)、増減は O(log 会社数) で、顧客数には依存しない。
+ * スレッドセーフではないため、CustomerManager のロックの下で使う。
+ */
+public class CompanyRanking {
+    
+    /** 顧客数の多い順、同数なら会社名の順 */
+    private static final Comparator<Count> ORDER = (a, b) -> {
+        int byCount = Integer.compare(b.count, a.count);
+        return byCount != 0 ? byCount : a.company.compareTo(b.company);
+    };
+    
+    private final Map<String, Count> counts = new HashMap<>();
+    private final TreeSet<Count> ranking = new TreeSet<>(ORDER);
+    
+    /**
+     * 会社の顧客数を 1 増やす
+     */
+    public void add(String company) {
+        String key = key(company);
+        Count current = counts.get(key);
+        int count = current != null ? current.count : 0;
+        replace(current, new Count(key, count + 1));
+    }
+    
+    /**
+     * 会社の顧客数を 1 減らす（0 になった会社は除く）
+     */
+    public void remove(String company) {
+        Count current = counts.get(key(company));
+        if (current == null) {
+            return;
+        }
+        replace(current, current.count > 1 ? new Count(current.company, current.count - 1) : null);
+    }
+    
+    /**
+     * 会社の顧客数（顧客がいなければ 0）
+     */
+    public int getCount(String company) {
+        Count current = counts.get(key(company));
+        return current != null ? current.count : 0;
+    }
+    
+    /**
+     * 顧客数の多い順に上位 limit 社（会社名 → 顧客数）
+     */
+    public List<Map.Entry<String, Integer>> top(int limit) {
+        List<Map.Entry<String, Integer>> result = new ArrayList<>(Math.min(limit, ranking.size()));
+        Iterator<Count> iterator = ranking.iterator();
+        while (result.size() < limit && iterator.hasNext()) {
+            Count count = iterator.next();
+            result.add(new AbstractMap.SimpleImmutableEntry<>(count.company, count.count));
+        }
+        return result;
+    }
+    
+    /**
+     * 顧客のいる会社の数
+     */
+    public int size() {
+        return counts.size();
+    }
+    
+    private void replace(Count current, Count next) {
+        if (current != null) {
+            ranking.remove(current);
+            counts.remove(current.company);
+        }
+        if (next != null) {
+            ranking.add(next);
+            counts.put(next.company, next);
+        }
+    }
+    
+    /**
+     * 会社名が未設定（null）の顧客は空文字の会社として数える
+     */
+    private static String key(String company) {
+        return company != null ? company : "";
+    }
+    
+    private static final class Count {
+        private final String company;
+        private final int count;
+        
+        Count(String company, int count) {
+            this.company = company;
+            this.count = count;
+        }
+    }
+}
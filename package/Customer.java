@@ -1,13 +1,14 @@
 import java.io.Serializable;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 顧客情報を表すクラス
  */
 public class Customer implements Serializable {
     private static final long serialVersionUID = 1L;
-    private static int nextId = 1;
+    private static final AtomicInteger nextId = new AtomicInteger(1);
     
     private int id;
     private String name;
@@ -19,9 +20,14 @@ public class Customer implements Serializable {
     private LocalDateTime lastContactDate;
     private String notes;
     
+    // 検索用の小文字化したキー（setter で更新、旧形式のデータから復元した場合は初回参照時に作成）
+    private transient String nameKey;
+    private transient String companyKey;
+    private transient String emailKey;
+    
     // コンストラクタ
     public Customer(String name, String email, String phone, String company, String address) {
-        this.id = nextId++;
+        this.id = nextId.getAndIncrement();
         this.name = name;
         this.email = email;
         this.phone = phone;
@@ -32,6 +38,25 @@ public class Customer implements Serializable {
         this.notes = "";
     }
     
+    // 保存済みデータからの復元用コンストラクタ（IDの採番はしない）
+    public Customer(int id, String name, String email, String phone, String company, String address,
+                    LocalDateTime registeredDate, LocalDateTime lastContactDate, String notes) {
+        this.id = id;
+        this.name = name;
+        this.email = email;
+        this.phone = phone;
+        this.company = company;
+        this.address = address;
+        this.registeredDate = registeredDate;
+        this.lastContactDate = lastContactDate;
+        this.notes = notes;
+    }
+    
+    // 同じ内容の別インスタンスを作成（スナップショット作成用）
+    public Customer copy() {
+        return new Customer(id, name, email, phone, company, address, registeredDate, lastContactDate, notes);
+    }
+    
     // Getters
     public int getId() {
         return id;
@@ -69,13 +94,42 @@ public class Customer implements Serializable {
         return notes;
     }
     
+    // 検索用キー（小文字化済み）
+    public String getNameKey() {
+        if (nameKey == null) {
+            nameKey = toKey(name);
+        }
+        return nameKey;
+    }
+    
+    public String getCompanyKey() {
+        if (companyKey == null) {
+            companyKey = toKey(company);
+        }
+        return companyKey;
+    }
+    
+    public String getEmailKey() {
+        if (emailKey == null) {
+            emailKey = toKey(email);
+        }
+        return emailKey;
+    }
+    
+    // 検索キーワードを検索用キーと同じ形に変換
+    public static String toKey(String value) {
+        return value != null ? value.toLowerCase() : "";
+    }
+    
     // Setters
     public void setName(String name) {
         this.name = name;
+        this.nameKey = toKey(name);
     }
     
     public void setEmail(String email) {
         this.email = email;
+        this.emailKey = toKey(email);
     }
     
     public void setPhone(String phone) {
@@ -84,6 +138,7 @@ public class Customer implements Serializable {
     
     public void setCompany(String company) {
         this.company = company;
+        this.companyKey = toKey(company);
     }
     
     public void setAddress(String address) {
@@ -99,7 +154,7 @@ public class Customer implements Serializable {
     }
     
     public static void setNextId(int nextId) {
-        Customer.nextId = nextId;
+        Customer.nextId.set(nextId);
     }
     
     // 顧客情報を整形して表示
@@ -0,0 +1,138 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * 顧客データのバイナリ表現 - 更新ログとスナップショットで共通
+ *
+ * 文字列は長さ付き UTF-8（null は長さ -1）、日時は UTC 基準のエポック秒とナノ秒で書く。
+ */
+public final class CustomerCodec {
+    
+    private CustomerCodec() {
+    }
+    
+    /**
+     * 顧客を書き込み
+     */
+    public static void write(DataOutput out, Customer customer) throws IOException {
+        out.writeInt(customer.getId());
+        writeString(out, customer.getName());
+        writeString(out, customer.getEmail());
+        writeString(out, customer.getPhone());
+        writeString(out, customer.getCompany());
+        writeString(out, customer.getAddress());
+        writeDateTime(out, customer.getRegisteredDate());
+        writeDateTime(out, customer.getLastContactDate());
+        writeString(out, customer.getNotes());
+    }
+    
+    /**
+     * 顧客を読み込み
+     */
+    public static Customer read(DataInput in) throws IOException {
+        int id = in.readInt();
+        String name = readString(in);
+        String email = readString(in);
+        String phone = readString(in);
+        String company = readString(in);
+        String address = readString(in);
+        LocalDateTime registeredDate = readDateTime(in);
+        LocalDateTime lastContactDate = readDateTime(in);
+        String notes = readString(in);
+        return new Customer(id, name, email, phone, company, address, registeredDate, lastContactDate, notes);
+    }
+    
+    /**
+     * 顧客を読み込み（メモリマップしたスナップショットから、buffer の現在位置より）
+     */
+    public static Customer read(ByteBuffer buffer) {
+        int id = buffer.getInt();
+        String name = readString(buffer);
+        String email = readString(buffer);
+        String phone = readString(buffer);
+        String company = readString(buffer);
+        String address = readString(buffer);
+        LocalDateTime registeredDate = readDateTime(buffer);
+        LocalDateTime lastContactDate = readDateTime(buffer);
+        String notes = readString(buffer);
+        return new Customer(id, name, email, phone, company, address, registeredDate, lastContactDate, notes);
+    }
+    
+    /**
+     * 会社名だけを読み込み（buffer の現在位置の顧客から、他の項目は読み飛ばす）
+     */
+    public static String readCompany(ByteBuffer buffer) {
+        buffer.position(buffer.position() + 4);
+        skipString(buffer);
+        skipString(buffer);
+        skipString(buffer);
+        return readString(buffer);
+    }
+    
+    public static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+    
+    public static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    public static void writeDateTime(DataOutput out, LocalDateTime value) throws IOException {
+        if (value == null) {
+            out.writeLong(Long.MIN_VALUE);
+            return;
+        }
+        out.writeLong(value.toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(value.getNano());
+    }
+    
+    public static LocalDateTime readDateTime(DataInput in) throws IOException {
+        long seconds = in.readLong();
+        if (seconds == Long.MIN_VALUE) {
+            return null;
+        }
+        return LocalDateTime.ofEpochSecond(seconds, in.readInt(), ZoneOffset.UTC);
+    }
+    
+    public static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    private static void skipString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length > 0) {
+            buffer.position(buffer.position() + length);
+        }
+    }
+    
+    public static LocalDateTime readDateTime(ByteBuffer buffer) {
+        long seconds = buffer.getLong();
+        if (seconds == Long.MIN_VALUE) {
+            return null;
+        }
+        return LocalDateTime.ofEpochSecond(seconds, buffer.getInt(), ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,278 @@
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * 顧客データの更新ログ - 変更 1 件ごとに 1 レコードを追記する
+ *
+ * レコード形式は [内容の長さ int][内容の CRC32 int][内容]。内容の先頭 1 バイトが種別で、
+ * 登録・更新は顧客全体（CustomerCodec）、削除は顧客IDのみを書く。
+ * 書き込み途中で異常終了した末尾のレコードは、読み込み時に切り捨てる。
+ *
+ * beginBatch() 以降の変更はメモリにため、commitBatch() で [内容の長さ int][内容] の並びを
+ * 1 レコード（種別 BATCH）として書き込んで同期する。途中で異常終了した場合、
+ * コミットしていない変更はまとめて失われ、一部だけが残ることはない。
+ */
+public class CustomerLog implements Closeable {
+    
+    /**
+     * ディスクへの同期（fsync）のタイミング
+     */
+    public enum SyncPolicy {
+        /** 追記のたびに同期する */
+        ALWAYS,
+        /** 一定間隔でまとめて同期する（CustomerManager が定期的に sync() を呼ぶ） */
+        INTERVAL,
+        /** 同期は OS に任せる（クローズ時のみ同期） */
+        NEVER;
+        
+        public static SyncPolicy of(String value) {
+            return valueOf(value.trim().toUpperCase());
+        }
+    }
+    
+    /**
+     * ログを再生するときの適用先
+     */
+    public interface Replayer {
+        void put(Customer customer);
+        
+        void delete(int id);
+    }
+    
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    private static final byte BATCH = 3;
+    private static final int HEADER_SIZE = 8;
+    
+    private final Path path;
+    private final FileChannel channel;
+    private final SyncPolicy syncPolicy;
+    private long size;
+    private boolean dirty;
+    private ByteArrayOutputStream batchBytes;
+    private DataOutputStream batch;
+    private int batchCount;
+    
+    private CustomerLog(Path path, FileChannel channel, SyncPolicy syncPolicy) throws IOException {
+        this.path = path;
+        this.channel = channel;
+        this.syncPolicy = syncPolicy;
+        this.size = channel.size();
+    }
+    
+    /**
+     * ログファイルを追記用に開く（なければ作成）
+     */
+    public static CustomerLog open(Path path, SyncPolicy syncPolicy) throws IOException {
+        FileChannel channel = FileChannel.open(path,
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        return new CustomerLog(path, channel, syncPolicy);
+    }
+    
+    /**
+     * 登録・更新を追記
+     */
+    public void put(Customer customer) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(PUT);
+        CustomerCodec.write(out, customer);
+        append(bytes.toByteArray());
+    }
+    
+    /**
+     * 削除を追記
+     */
+    public void delete(int id) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(8);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(DELETE);
+        out.writeInt(id);
+        append(bytes.toByteArray());
+    }
+    
+    private synchronized void append(byte[] payload) throws IOException {
+        if (batchBytes != null) {
+            batch.writeInt(payload.length);
+            batch.write(payload);
+            batchCount++;
+            return;
+        }
+        writeRecord(payload);
+        if (syncPolicy == SyncPolicy.ALWAYS) {
+            channel.force(false);
+        } else {
+            dirty = true;
+        }
+    }
+    
+    private void writeRecord(byte[] payload) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + payload.length);
+        buffer.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        size += HEADER_SIZE + payload.length;
+    }
+    
+    /**
+     * 一括書き込みを開始（以降の追記は commitBatch() までメモリにためる）
+     */
+    public synchronized void beginBatch() throws IOException {
+        if (batchBytes == null) {
+            batchBytes = new ByteArrayOutputStream(64 * 1024);
+            batch = new DataOutputStream(batchBytes);
+            batch.writeByte(BATCH);
+            batchCount = 0;
+        }
+    }
+    
+    /**
+     * ためた追記を 1 レコードとして書き込んで同期し、コミットした件数を返す（一括書き込みは続ける）
+     */
+    public synchronized int commitBatch() throws IOException {
+        if (batchBytes == null || batchCount == 0) {
+            return 0;
+        }
+        writeRecord(batchBytes.toByteArray());
+        channel.force(false);
+        dirty = false;
+        int committed = batchCount;
+        batchBytes.reset();
+        batch.writeByte(BATCH);
+        batchCount = 0;
+        return committed;
+    }
+    
+    /**
+     * ためた追記をコミットして一括書き込みを終了
+     */
+    public synchronized int endBatch() throws IOException {
+        int committed = commitBatch();
+        batchBytes = null;
+        batch = null;
+        return committed;
+    }
+    
+    /**
+     * 未同期の追記をディスクに同期
+     */
+    public synchronized void sync() throws IOException {
+        if (dirty && channel.isOpen()) {
+            channel.force(false);
+            dirty = false;
+        }
+    }
+    
+    /**
+     * ログファイルのサイズ（バイト）
+     */
+    public synchronized long size() {
+        return size;
+    }
+    
+    public Path getPath() {
+        return path;
+    }
+    
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel.isOpen()) {
+            endBatch();
+            sync();
+            channel.close();
+        }
+    }
+    
+    /**
+     * ログを先頭から適用し、適用した変更の件数を返す
+     *
+     * 途中で壊れたレコード（書き込み途中の異常終了など）が見つかった場合は、
+     * そこから後ろを切り捨てて以降の追記に備える。
+     */
+    public static int replay(Path path, Replayer replayer) throws IOException {
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        long fileSize = Files.size(path);
+        long validSize = 0;
+        int count = 0;
+        boolean broken = false;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 64 * 1024))) {
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                int checksum;
+                byte[] payload;
+                try {
+                    checksum = in.readInt();
+                    if (length <= 0 || length > fileSize - validSize - HEADER_SIZE) {
+                        broken = true;
+                        break;
+                    }
+                    payload = new byte[length];
+                    in.readFully(payload);
+                } catch (EOFException e) {
+                    broken = true;
+                    break;
+                }
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+                if ((int) crc.getValue() != checksum) {
+                    broken = true;
+                    break;
+                }
+                count += apply(payload, replayer);
+                validSize += HEADER_SIZE + length;
+            }
+        }
+        if (broken) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                channel.truncate(validSize);
+            }
+            System.err.println("更新ログの末尾が壊れていたため切り捨てました: " + path + " (" + count + "件まで適用)");
+        }
+        return count;
+    }
+    
+    private static int apply(byte[] payload, Replayer replayer) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        byte type = in.readByte();
+        switch (type) {
+            case PUT:
+                replayer.put(CustomerCodec.read(in));
+                return 1;
+            case DELETE:
+                replayer.delete(in.readInt());
+                return 1;
+            case BATCH:
+                int applied = 0;
+                while (in.available() > 0) {
+                    byte[] entry = new byte[in.readInt()];
+                    in.readFully(entry);
+                    applied += apply(entry, replayer);
+                }
+                return applied;
+            default:
+                throw new IOException("不明な更新ログのレコード種別です: " + type);
+        }
+    }
+}
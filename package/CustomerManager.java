@@ -1,42 +1,146 @@
 import java.io.*;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Matcher;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
 
 /**
  * 顧客管理クラス - CRUD操作を提供
+ *
+ * 変更は customers.dat 全体を書き直さず、更新ログ（customers.dat.<世代>.log）に
+ * 1 件ずつ追記する。ログが一定サイズを超えたらバックグラウンドで新しいスナップショット
+ * （customers.dat.<世代>.snapshot）に書き出し、メモリマップし直してから古いスナップショットとログを削除する。
+ * メモリマップ中のファイルは置き換えない（Windows では置き換えられない）。起動時は最も新しい世代の
+ * スナップショット（なければ customers.dat）をメモリマップし（顧客は MappedCustomerMap が必要になった
+ * 時点で読み込む）、残っているログを再生する。
+ *
+ * システムプロパティで動作を変更できる:
+ *   crm.log.sync                    同期ポリシー（always / interval / never、既定: interval）
+ *   crm.log.sync-interval-ms        interval の同期間隔（既定: 1000）
+ *   crm.log.compact-threshold-bytes スナップショットを作り直すログのサイズ（既定: 4MB）
+ *   crm.search.parallel-threshold   検索を並列に走査する件数の下限（既定: 10000）
+ *
+ * 複数のスレッドから同時に使える。顧客IDはインスタンスごとに AtomicInteger で払い出し、
+ * 登録・更新・削除と更新ログへの追記は書き込みロック、参照・検索は読み込みロックの下で行う。
+ * 更新は顧客を複製して置き換えるため、取得済みの Customer が他のスレッドから書き換わることはない。
+ *
+ * 会社別の顧客数は統計を最初に求めたときに集計し、以降は登録・更新・削除のたびに増減させる。
  */
 public class CustomerManager {
-    private Map<Integer, Customer> customers;
+    private MappedCustomerMap customers;
     private static final String DATA_FILE = "customers.dat";
+    private static final CustomerLog.SyncPolicy SYNC_POLICY =
+        CustomerLog.SyncPolicy.of(System.getProperty("crm.log.sync", "interval"));
+    private static final long SYNC_INTERVAL_MS = Long.getLong("crm.log.sync-interval-ms", 1000L);
+    private static final long COMPACT_THRESHOLD_BYTES = Long.getLong("crm.log.compact-threshold-bytes", 4L * 1024 * 1024);
+    private static final int PARALLEL_SEARCH_THRESHOLD = Integer.getInteger("crm.search.parallel-threshold", 10000);
+    private static final int SEARCH_SPLIT_SIZE = Math.max(1000, PARALLEL_SEARCH_THRESHOLD / 4);
+    private static final int SNAPSHOT_CHUNK_SIZE = 1000;
+    private final String dataFile;
+    private final Pattern logFilePattern;
+    private final Pattern snapshotFilePattern;
+    private final ScheduledExecutorService background;
+    private volatile CustomerLog log;
+    private long generation;
+    private volatile boolean compacting;
+    private volatile AtomicReferenceArray<Customer> scanTargets;
+    private final AtomicInteger nextId = new AtomicInteger(1);
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile CompanyRanking companyRanking;
+    private boolean batching;
     
     public CustomerManager() {
-        customers = new HashMap<>();
+        this(DATA_FILE);
+    }
+    
+    /**
+     * データファイルを指定して生成
+     */
+    public CustomerManager(String dataFile) {
+        this.dataFile = dataFile;
+        String fileName = Pattern.quote(Paths.get(dataFile).getFileName().toString());
+        this.logFilePattern = Pattern.compile(fileName + "\\.(\\d+)\\.log");
+        this.snapshotFilePattern = Pattern.compile(fileName + "\\.(\\d+)\\.snapshot");
+        this.background = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "customer-log");
+            thread.setDaemon(true);
+            return thread;
+        });
+        customers = new MappedCustomerMap();
         loadCustomers();
+        openLog();
+        if (SYNC_POLICY == CustomerLog.SyncPolicy.INTERVAL) {
+            background.scheduleWithFixedDelay(this::syncLog, SYNC_INTERVAL_MS, SYNC_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        }
     }
     
     /**
      * 顧客を追加
      */
-    public void addCustomer(String name, String email, String phone, String company, String address) {
-        Customer customer = new Customer(name, email, phone, company, address);
-        customers.put(customer.getId(), customer);
-        saveCustomers();
-        System.out.println("✓ 顧客を登録しました: " + customer.getName());
+    public Customer addCustomer(String name, String email, String phone, String company, String address) {
+        LocalDateTime now = LocalDateTime.now();
+        Customer customer = new Customer(nextId.getAndIncrement(), name, email, phone, company, address, now, now, "");
+        lock.writeLock().lock();
+        try {
+            customers.put(customer.getId(), customer);
+            scanTargets = null;
+            if (companyRanking != null) {
+                companyRanking.add(customer.getCompany());
+            }
+            logPut(customer);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return customer;
     }
     
     /**
      * 顧客を取得
      */
     public Customer getCustomer(int id) {
-        return customers.get(id);
+        lock.readLock().lock();
+        try {
+            return customers.get(id);
+        } finally {
+            lock.readLock().unlock();
+        }
     }
     
     /**
      * 全顧客を取得
      */
     public List<Customer> getAllCustomers() {
-        return new ArrayList<>(customers.values());
+        AtomicReferenceArray<Customer> all = scanTargets();
+        List<Customer> result = new ArrayList<>(all.length());
+        for (int i = 0; i < all.length(); i++) {
+            result.add(all.get(i));
+        }
+        return result;
+    }
+    
+    /**
+     * ID が afterId より大きい顧客を ID 昇順に最大 limit 件取得（全件を少しずつ読み出す場合に使う）
+     */
+    public List<Customer> getCustomersAfter(int afterId, int limit) {
+        lock.readLock().lock();
+        try {
+            return customers.valuesAfter(afterId, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
     }
     
     /**
@@ -44,8 +148,13 @@ public class CustomerManager {
      */
     public boolean updateCustomer(int id, String name, String email, String phone, 
                                    String company, String address, String notes) {
-        Customer customer = customers.get(id);
-        if (customer != null) {
+        lock.writeLock().lock();
+        try {
+            Customer current = customers.get(id);
+            if (current == null) {
+                return false;
+            }
+            Customer customer = current.copy();
             if (name != null && !name.isEmpty()) customer.setName(name);
             if (email != null && !email.isEmpty()) customer.setEmail(email);
             if (phone != null && !phone.isEmpty()) customer.setPhone(phone);
@@ -53,111 +162,508 @@ public class CustomerManager {
             if (address != null && !address.isEmpty()) customer.setAddress(address);
             if (notes != null) customer.setNotes(notes);
             customer.setLastContactDate(LocalDateTime.now());
-            saveCustomers();
-            System.out.println("✓ 顧客情報を更新しました");
+            customers.put(id, customer);
+            replaceScanTarget(customer);
+            if (companyRanking != null && !Objects.equals(current.getCompany(), customer.getCompany())) {
+                companyRanking.remove(current.getCompany());
+                companyRanking.add(customer.getCompany());
+            }
+            logPut(customer);
             return true;
+        } finally {
+            lock.writeLock().unlock();
         }
-        System.out.println("✗ 顧客が見つかりません");
-        return false;
     }
     
     /**
      * 顧客を削除
      */
     public boolean deleteCustomer(int id) {
-        Customer customer = customers.remove(id);
-        if (customer != null) {
-            saveCustomers();
-            System.out.println("✓ 顧客を削除しました: " + customer.getName());
+        lock.writeLock().lock();
+        try {
+            Customer removed = customers.remove(id);
+            if (removed == null) {
+                return false;
+            }
+            scanTargets = null;
+            if (companyRanking != null) {
+                companyRanking.remove(removed.getCompany());
+            }
+            logDelete(id);
             return true;
+        } finally {
+            lock.writeLock().unlock();
         }
-        System.out.println("✗ 顧客が見つかりません");
-        return false;
     }
     
     /**
      * 名前で検索
      */
     public List<Customer> searchByName(String keyword) {
-        return customers.values().stream()
-            .filter(c -> c.getName().toLowerCase().contains(keyword.toLowerCase()))
-            .collect(Collectors.toList());
+        String key = Customer.toKey(keyword);
+        return search(c -> c.getNameKey().contains(key));
     }
     
     /**
      * 会社名で検索
      */
     public List<Customer> searchByCompany(String keyword) {
-        return customers.values().stream()
-            .filter(c -> c.getCompany().toLowerCase().contains(keyword.toLowerCase()))
-            .collect(Collectors.toList());
+        String key = Customer.toKey(keyword);
+        return search(c -> c.getCompanyKey().contains(key));
     }
     
     /**
      * メールアドレスで検索
      */
     public List<Customer> searchByEmail(String keyword) {
-        return customers.values().stream()
-            .filter(c -> c.getEmail().toLowerCase().contains(keyword.toLowerCase()))
-            .collect(Collectors.toList());
+        String key = Customer.toKey(keyword);
+        return search(c -> c.getEmailKey().contains(key));
     }
     
     /**
      * 全ての条件で検索
      */
     public List<Customer> searchAll(String keyword) {
-        return customers.values().stream()
-            .filter(c -> c.getName().toLowerCase().contains(keyword.toLowerCase()) ||
-                        c.getCompany().toLowerCase().contains(keyword.toLowerCase()) ||
-                        c.getEmail().toLowerCase().contains(keyword.toLowerCase()) ||
-                        c.getPhone().contains(keyword))
-            .collect(Collectors.toList());
+        String key = Customer.toKey(keyword);
+        return search(c -> c.getNameKey().contains(key) ||
+                           c.getCompanyKey().contains(key) ||
+                           c.getEmailKey().contains(key) ||
+                           (c.getPhone() != null && c.getPhone().contains(keyword)));
+    }
+    
+    /**
+     * 全顧客を走査して条件に一致するものを ID 順に返す
+     *
+     * 件数が crm.search.parallel-threshold 以上なら Fork/Join で分割して並列に走査する。
+     */
+    private List<Customer> search(Predicate<Customer> matcher) {
+        AtomicReferenceArray<Customer> all = scanTargets();
+        if (all.length() < PARALLEL_SEARCH_THRESHOLD) {
+            return new SearchTask(all, 0, all.length(), matcher).scan();
+        }
+        return ForkJoinPool.commonPool().invoke(new SearchTask(all, 0, all.length(), matcher));
+    }
+    
+    /**
+     * 走査対象の配列（追加・削除があるまで使い回す）
+     *
+     * 並列走査中に MappedCustomerMap が顧客を読み込まないよう、ここで全件を読み込んでおく。
+     */
+    private AtomicReferenceArray<Customer> scanTargets() {
+        AtomicReferenceArray<Customer> all = scanTargets;
+        if (all == null) {
+            lock.readLock().lock();
+            try {
+                all = new AtomicReferenceArray<>(customers.values().toArray(new Customer[0]));
+                scanTargets = all;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+        return all;
+    }
+    
+    /**
+     * 走査対象の配列の顧客を更新後のものに置き換える（書き込みロックの下で呼ぶ）
+     *
+     * 配列は ID 順のため二分探索で位置を求め、その要素だけを置き換える（O(log n)）。要素の読み書きは
+     * AtomicReferenceArray を通すため、走査中の検索にも置き換えた顧客が安全に公開される
+     * （走査中の検索には更新前・更新後のどちらかが見える）。更新のたびに配列を作り直さないため、
+     * 検索と更新が交互に続いても詰まらない。
+     */
+    private void replaceScanTarget(Customer customer) {
+        AtomicReferenceArray<Customer> all = scanTargets;
+        if (all == null) {
+            return;
+        }
+        int low = 0;
+        int high = all.length() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int id = all.get(mid).getId();
+            if (id < customer.getId()) {
+                low = mid + 1;
+            } else if (id > customer.getId()) {
+                high = mid - 1;
+            } else {
+                all.set(mid, customer);
+                return;
+            }
+        }
+        scanTargets = null;
+    }
+    
+    /**
+     * 配列の範囲を分割しながら走査するタスク
+     */
+    private static final class SearchTask extends RecursiveTask<List<Customer>> {
+        private static final long serialVersionUID = 1L;
+        
+        private final AtomicReferenceArray<Customer> customers;
+        private final int from;
+        private final int to;
+        private final Predicate<Customer> matcher;
+        
+        SearchTask(AtomicReferenceArray<Customer> customers, int from, int to, Predicate<Customer> matcher) {
+            this.customers = customers;
+            this.from = from;
+            this.to = to;
+            this.matcher = matcher;
+        }
+        
+        @Override
+        protected List<Customer> compute() {
+            if (to - from <= SEARCH_SPLIT_SIZE) {
+                return scan();
+            }
+            int mid = (from + to) >>> 1;
+            SearchTask left = new SearchTask(customers, from, mid, matcher);
+            left.fork();
+            List<Customer> right = new SearchTask(customers, mid, to, matcher).compute();
+            List<Customer> result = left.join();
+            result.addAll(right);
+            return result;
+        }
+        
+        List<Customer> scan() {
+            List<Customer> result = new ArrayList<>();
+            for (int i = from; i < to; i++) {
+                Customer customer = customers.get(i);
+                if (matcher.test(customer)) {
+                    result.add(customer);
+                }
+            }
+            return result;
+        }
     }
     
     /**
      * 顧客数を取得
      */
     public int getCustomerCount() {
-        return customers.size();
+        lock.readLock().lock();
+        try {
+            return customers.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * 登録・更新を更新ログに追記
+     */
+    private void logPut(Customer customer) {
+        try {
+            log.put(customer);
+        } catch (IOException e) {
+            System.err.println("データ保存エラー: " + e.getMessage());
+        }
+        if (!batching) {
+            compactIfNeeded();
+        }
+    }
+    
+    /**
+     * 削除を更新ログに追記
+     */
+    private void logDelete(int id) {
+        try {
+            log.delete(id);
+        } catch (IOException e) {
+            System.err.println("データ保存エラー: " + e.getMessage());
+        }
+        if (!batching) {
+            compactIfNeeded();
+        }
+    }
+    
+    /**
+     * 一括処理を開始 - 以降の変更は更新ログに書かずにため、commitBatch() でまとめて書き込む
+     *
+     * 一括処理中のスナップショット作成はコミット時にだけ行う。
+     */
+    public void beginBatch() {
+        lock.writeLock().lock();
+        try {
+            log.beginBatch();
+            batching = true;
+        } catch (IOException e) {
+            System.err.println("データ保存エラー: " + e.getMessage());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * ためた変更を更新ログに書き込んで同期し、書き込んだ件数を返す（一括処理は続ける）
+     */
+    public int commitBatch() {
+        lock.writeLock().lock();
+        try {
+            int committed = log.commitBatch();
+            compactIfNeeded();
+            return committed;
+        } catch (IOException e) {
+            System.err.println("データ保存エラー: " + e.getMessage());
+            return 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
     
     /**
-     * 顧客データを保存
+     * ためた変更を書き込んで一括処理を終了し、書き込んだ件数を返す
      */
-    private void saveCustomers() {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(DATA_FILE))) {
-            oos.writeObject(customers);
-            // 次のIDも保存
-            int maxId = customers.values().stream()
-                .mapToInt(Customer::getId)
-                .max()
-                .orElse(0);
-            Customer.setNextId(maxId + 1);
+    public int endBatch() {
+        lock.writeLock().lock();
+        try {
+            batching = false;
+            int committed = log.endBatch();
+            compactIfNeeded();
+            return committed;
         } catch (IOException e) {
             System.err.println("データ保存エラー: " + e.getMessage());
+            return 0;
+        } finally {
+            lock.writeLock().unlock();
         }
     }
     
     /**
-     * 顧客データを読み込み
+     * 更新ログが閾値を超えていれば、新しい世代のログに切り替えてスナップショットを作成
+     *
+     * 呼び出し元のスレッドではログの切り替えだけを行い、スナップショットの書き込みと
+     * 古いログの削除はバックグラウンドで行う。書き込みが終わる前に異常終了しても、
+     * 次回起動時に古いスナップショットと両方のログから復元できる。
+     *
+     * 書き終えたスナップショットはメモリマップし、書き出した後の変更をほとんどロックの外で重ねてから
+     * 顧客マップを置き換える（MappedCustomerMap.beginSnapshot() を参照。古いスナップショットはその後で削除する）。
+     */
+    private void compactIfNeeded() {
+        if (compacting || log.size() < COMPACT_THRESHOLD_BYTES) {
+            return;
+        }
+        long snapshotGeneration = generation + 1;
+        CustomerLog previous = log;
+        try {
+            log = CustomerLog.open(logPath(snapshotGeneration), SYNC_POLICY);
+            if (batching) {
+                log.beginBatch();
+            }
+            generation = snapshotGeneration;
+            previous.close();
+        } catch (IOException e) {
+            System.err.println("更新ログの切り替えエラー: " + e.getMessage());
+            return;
+        }
+        customers.beginSnapshot();
+        compacting = true;
+        background.execute(() -> {
+            Path snapshotFile = snapshotPath(snapshotGeneration);
+            try {
+                try (CustomerSnapshotFile.Writer writer =
+                         CustomerSnapshotFile.createWriter(snapshotFile, snapshotGeneration)) {
+                    writeSnapshot(writer);
+                    writer.commit();
+                }
+                MappedCustomerMap snapshot = CustomerSnapshotFile.read(snapshotFile).getCustomers();
+                Map<Integer, Customer> changes;
+                lock.writeLock().lock();
+                try {
+                    changes = customers.takeChanges();
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                customers.prepareRebase(snapshot, changes);
+                lock.writeLock().lock();
+                try {
+                    customers = customers.rebase(snapshot);
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                deleteLogsBefore(snapshotGeneration);
+                deleteSnapshotsBefore(snapshotGeneration);
+            } catch (IOException e) {
+                System.err.println("スナップショット作成エラー: " + e.getMessage());
+                lock.writeLock().lock();
+                try {
+                    customers.endSnapshot();
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            } finally {
+                compacting = false;
+            }
+        });
+    }
+    
+    /**
+     * 全顧客を ID 順にスナップショットへ書き出す（バックグラウンドのスレッドで呼ぶ）
+     *
+     * 読み込みロックの下では SNAPSHOT_CHUNK_SIZE 件ずつ取り出すだけで、書き込みはロックの外で行う。
+     * 書き出す間にも登録・更新・削除は進むが、ログの切り替え後の変更はすべて新しい世代のログにあり、
+     * 再生すれば同じ内容になる（ログの再生は何度適用しても結果が変わらない）。
+     */
+    private void writeSnapshot(CustomerSnapshotFile.Writer writer) throws IOException {
+        int afterId = 0;
+        while (true) {
+            MappedCustomerMap.Chunk chunk;
+            lock.readLock().lock();
+            try {
+                chunk = customers.chunkAfter(afterId, SNAPSHOT_CHUNK_SIZE);
+            } finally {
+                lock.readLock().unlock();
+            }
+            if (chunk.isEmpty()) {
+                return;
+            }
+            chunk.writeTo(writer);
+            afterId = chunk.lastId();
+        }
+    }
+    
+    /**
+     * 顧客データを読み込み（スナップショット + 更新ログの再生）
      */
-    @SuppressWarnings("unchecked")
     private void loadCustomers() {
-        File file = new File(DATA_FILE);
-        if (file.exists()) {
-            try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(file))) {
-                customers = (Map<Integer, Customer>) ois.readObject();
-                // 次のIDを復元
-                int maxId = customers.values().stream()
-                    .mapToInt(Customer::getId)
-                    .max()
-                    .orElse(0);
-                Customer.setNextId(maxId + 1);
+        try {
+            List<Long> snapshotGenerations = generations(snapshotFilePattern);
+            boolean compacted = !snapshotGenerations.isEmpty();
+            long snapshotGeneration = compacted ? snapshotGenerations.get(snapshotGenerations.size() - 1) : 0;
+            CustomerSnapshotFile.Contents snapshot = CustomerSnapshotFile.read(
+                compacted ? snapshotPath(snapshotGeneration) : Paths.get(dataFile));
+            if (snapshot != null) {
+                customers = snapshot.getCustomers();
+                generation = snapshot.getGeneration();
+            }
+            if (compacted) {
+                // 置き換えた後、削除する前に終了したもの
+                deleteSnapshotsBefore(snapshotGeneration);
+            }
+            
+            int replayed = 0;
+            CustomerLog.Replayer replayer = new CustomerLog.Replayer() {
+                @Override
+                public void put(Customer customer) {
+                    customers.put(customer.getId(), customer);
+                }
+                
+                @Override
+                public void delete(int id) {
+                    customers.remove(id);
+                }
+            };
+            for (long logGeneration : generations(logFilePattern)) {
+                if (logGeneration < generation) {
+                    // スナップショットに反映済み（削除前に終了したもの）
+                    Files.deleteIfExists(logPath(logGeneration));
+                    continue;
+                }
+                replayed += CustomerLog.replay(logPath(logGeneration), replayer);
+                generation = logGeneration;
+            }
+            
+            // 次のIDを復元（ID テーブルから求め、顧客は読み込まない）
+            nextId.set(customers.maxId() + 1);
+            if (snapshot != null || replayed > 0) {
                 System.out.println("✓ " + customers.size() + "件の顧客データを読み込みました");
-            } catch (IOException | ClassNotFoundException e) {
-                System.err.println("データ読み込みエラー: " + e.getMessage());
-                customers = new HashMap<>();
             }
+        } catch (IOException e) {
+            System.err.println("データ読み込みエラー: " + e.getMessage());
+            customers = new MappedCustomerMap();
+        }
+    }
+    
+    private void openLog() {
+        try {
+            log = CustomerLog.open(logPath(generation), SYNC_POLICY);
+        } catch (IOException e) {
+            throw new UncheckedIOException("更新ログを開けません: " + logPath(generation), e);
+        }
+    }
+    
+    private void syncLog() {
+        try {
+            log.sync();
+        } catch (IOException e) {
+            System.err.println("更新ログの同期エラー: " + e.getMessage());
+        }
+    }
+    
+    private Path logPath(long logGeneration) {
+        return Paths.get(dataFile + "." + logGeneration + ".log");
+    }
+    
+    private Path snapshotPath(long snapshotGeneration) {
+        return Paths.get(dataFile + "." + snapshotGeneration + ".snapshot");
+    }
+    
+    /**
+     * 存在する更新ログ・スナップショットの世代番号（昇順）
+     */
+    private List<Long> generations(Pattern filePattern) throws IOException {
+        Path parent = Paths.get(dataFile).toAbsolutePath().getParent();
+        List<Long> generations = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(parent)) {
+            for (Path file : files) {
+                Matcher matcher = filePattern.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    generations.add(Long.parseLong(matcher.group(1)));
+                }
+            }
+        }
+        Collections.sort(generations);
+        return generations;
+    }
+    
+    private void deleteLogsBefore(long logGeneration) throws IOException {
+        for (long existing : generations(logFilePattern)) {
+            if (existing < logGeneration) {
+                Files.deleteIfExists(logPath(existing));
+            }
+        }
+    }
+    
+    /**
+     * snapshotGeneration より前のスナップショット（customers.dat を含む）を削除
+     *
+     * まだメモリマップが解放されていないファイルは削除できない場合がある（Windows）。
+     * その場合は残しておき、次回の起動時に削除する。
+     */
+    private void deleteSnapshotsBefore(long snapshotGeneration) throws IOException {
+        List<Path> files = new ArrayList<>();
+        files.add(Paths.get(dataFile));
+        for (long existing : generations(snapshotFilePattern)) {
+            if (existing < snapshotGeneration) {
+                files.add(snapshotPath(existing));
+            }
+        }
+        for (Path file : files) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                // 次回の起動時に削除する
+            }
+        }
+    }
+    
+    /**
+     * 更新ログを同期して閉じる（作成中のスナップショットは書き終えるまで待つ）
+     */
+    public void close() {
+        background.shutdown();
+        try {
+            background.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        lock.writeLock().lock();
+        try {
+            log.close();
+        } catch (IOException e) {
+            System.err.println("データ保存エラー: " + e.getMessage());
+        } finally {
+            lock.writeLock().unlock();
         }
     }
     
@@ -165,19 +671,76 @@ public class CustomerManager {
      * 統計情報を表示
      */
     public void showStatistics() {
-        System.out.println("\n========== 統計情報 ==========");
-        System.out.println("総顧客数: " + customers.size());
-        
-        Map<String, Long> companyStats = customers.values().stream()
-            .collect(Collectors.groupingBy(Customer::getCompany, Collectors.counting()));
+        showStatistics(System.out);
+    }
+    
+    /**
+     * 統計情報を指定した出力先に表示（顧客数によらず一定の時間で表示できる）
+     */
+    public void showStatistics(PrintStream out) {
+        CompanyRanking ranking = companyRanking();
+        int total;
+        List<Map.Entry<String, Integer>> top;
+        lock.readLock().lock();
+        try {
+            total = customers.size();
+            top = ranking.top(5);
+        } finally {
+            lock.readLock().unlock();
+        }
+        out.println("\n========== 統計情報 ==========");
+        out.println("総顧客数: " + total);
         
-        System.out.println("\n会社別顧客数:");
-        companyStats.entrySet().stream()
-            .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
-            .limit(5)
-            .forEach(e -> System.out.println("  " + e.getKey() + ": " + e.getValue() + "人"));
+        out.println("\n会社別顧客数:");
+        top.forEach(e -> out.println("  " + e.getKey() + ": " + e.getValue() + "人"));
         
-        System.out.println("==============================\n");
+        out.println("==============================\n");
+    }
+    
+    /**
+     * 顧客数の多い順に上位 limit 社（会社名 → 顧客数）
+     */
+    public List<Map.Entry<String, Integer>> getTopCompanies(int limit) {
+        CompanyRanking ranking = companyRanking();
+        lock.readLock().lock();
+        try {
+            return ranking.top(limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * 会社の顧客数（会社名は完全一致）
+     */
+    public int getCustomerCountByCompany(String company) {
+        CompanyRanking ranking = companyRanking();
+        lock.readLock().lock();
+        try {
+            return ranking.getCount(company);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * 会社別の顧客数（初回はスナップショットの会社名だけを読んで集計する）
+     */
+    private CompanyRanking companyRanking() {
+        CompanyRanking ranking = companyRanking;
+        if (ranking == null) {
+            lock.writeLock().lock();
+            try {
+                ranking = companyRanking;
+                if (ranking == null) {
+                    ranking = new CompanyRanking();
+                    customers.forEachCompany(ranking::add);
+                    companyRanking = ranking;
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        return ranking;
     }
 }
-
@@ -0,0 +1,305 @@
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * CLI版の顧客データ（customers.dat）を Web版のデータベース（customers テーブル）へ移行する
+ *
+ * 顧客を ID 順に batch-size 件ずつ読み出し、JDBC のバッチ INSERT で書き込む。
+ * 顧客ID・登録日時・最終接触日時はそのまま引き継ぐ。読み出した顧客は保持しないため、
+ * 件数によらずメモリ使用量は一定。
+ *
+ * 移行済みの最後の顧客IDは各バッチと同じトランザクションで cli_migration_checkpoint テーブルに記録し、
+ * 中断した場合は次回その続きから再開する（同じ顧客を二重に登録することはない）。
+ *
+ * 書き込む前に移行対象を一通り確認し、次の場合は何も書き込まずに終了する（該当する顧客IDを表示する）。
+ *   - 名前・メールアドレスが空の顧客がいる（Web版では必須のため、CLI版で修正してから実行する）
+ *   - Web版に同じIDの顧客がすでにいる（--on-conflict skip を指定すると、その顧客を読み飛ばして件数を表示する）
+ *
+ * Web版を停止してから実行すること（H2 のファイルは 1 つのプロセスからしか開けない）。
+ * customers テーブルは Web版の初回起動時に作成される。ID シーケンスは次回の Web版起動時に
+ * 移行した最大IDの後ろへ進められる（CustomerIdSequenceInitializer）。
+ *
+ *   java -cp .:h2.jar CustomerMigration [--data customers.dat] [--url jdbc:h2:file:./data/crmdb]
+ *        [--user sa] [--password ""] [--batch-size 1000] [--on-conflict fail|skip]
+ */
+public class CustomerMigration {
+    private static final String INSERT_CUSTOMER =
+        "INSERT INTO customers (id, name, email, phone, company, address, registered_date, last_contact_date, notes) "
+        + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String CREATE_CHECKPOINT =
+        "CREATE TABLE IF NOT EXISTS cli_migration_checkpoint ("
+        + "source VARCHAR(1000) PRIMARY KEY, last_id INT NOT NULL, migrated BIGINT NOT NULL, updated_at TIMESTAMP NOT NULL)";
+    private static final int PROGRESS_INTERVAL = 100000;
+    private static final int MAX_LISTED_IDS = 20;
+    
+    private final CustomerManager manager;
+    private final Connection connection;
+    private final String source;
+    private final int batchSize;
+    private final boolean skipConflicts;
+    
+    public CustomerMigration(CustomerManager manager, Connection connection, String source, int batchSize,
+                             boolean skipConflicts) {
+        this.manager = manager;
+        this.connection = connection;
+        this.source = source;
+        this.batchSize = batchSize;
+        this.skipConflicts = skipConflicts;
+    }
+    
+    public static void main(String[] args) throws SQLException {
+        String dataFile = "customers.dat";
+        String url = "jdbc:h2:file:./data/crmdb";
+        String user = "sa";
+        String password = "";
+        int batchSize = 1000;
+        boolean skipConflicts = false;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--data":
+                    dataFile = args[i + 1];
+                    break;
+                case "--url":
+                    url = args[i + 1];
+                    break;
+                case "--user":
+                    user = args[i + 1];
+                    break;
+                case "--password":
+                    password = args[i + 1];
+                    break;
+                case "--batch-size":
+                    batchSize = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--on-conflict":
+                    if (!args[i + 1].equals("fail") && !args[i + 1].equals("skip")) {
+                        System.err.println("✗ --on-conflict には fail か skip を指定してください: " + args[i + 1]);
+                        return;
+                    }
+                    skipConflicts = args[i + 1].equals("skip");
+                    break;
+                default:
+                    System.err.println("✗ 不明なオプションです: " + args[i]);
+                    return;
+            }
+        }
+        
+        CustomerManager manager = new CustomerManager(dataFile);
+        try (Connection connection = DriverManager.getConnection(url, user, password)) {
+            String source = Paths.get(dataFile).toAbsolutePath().normalize().toString();
+            new CustomerMigration(manager, connection, source, batchSize, skipConflicts).run();
+        } finally {
+            manager.close();
+        }
+    }
+    
+    /**
+     * チェックポイントの続きから全顧客を移行
+     */
+    public void run() throws SQLException {
+        long start = System.nanoTime();
+        connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(CREATE_CHECKPOINT);
+        }
+        connection.commit();
+        
+        int lastId = 0;
+        long migrated = 0;
+        try (PreparedStatement select = connection.prepareStatement(
+                "SELECT last_id, migrated FROM cli_migration_checkpoint WHERE source = ?")) {
+            select.setString(1, source);
+            try (ResultSet resultSet = select.executeQuery()) {
+                if (resultSet.next()) {
+                    lastId = resultSet.getInt(1);
+                    migrated = resultSet.getLong(2);
+                    System.out.println("✓ 前回の続き（顧客ID " + lastId + " の後、移行済み " + migrated + "件）から再開します");
+                }
+            }
+        }
+        
+        if (!check(lastId)) {
+            return;
+        }
+        
+        long migratedBefore = migrated;
+        long skipped = 0;
+        long nextProgress = (migrated / PROGRESS_INTERVAL + 1) * PROGRESS_INTERVAL;
+        try (PreparedStatement insert = connection.prepareStatement(INSERT_CUSTOMER)) {
+            while (true) {
+                List<Customer> batch = manager.getCustomersAfter(lastId, batchSize);
+                if (batch.isEmpty()) {
+                    break;
+                }
+                Set<Integer> existing = existingIds(batch);
+                for (Customer customer : batch) {
+                    if (existing.contains(customer.getId())) {
+                        skipped++;
+                        continue;
+                    }
+                    bind(insert, customer);
+                    insert.addBatch();
+                }
+                lastId = batch.get(batch.size() - 1).getId();
+                migrated += batch.size() - existing.size();
+                try {
+                    insert.executeBatch();
+                    saveCheckpoint(lastId, migrated);
+                    connection.commit();
+                } catch (SQLException e) {
+                    connection.rollback();
+                    throw e;
+                }
+                if (migrated >= nextProgress) {
+                    System.out.println("  " + migrated + "件 移行済み（顧客ID " + lastId + " まで）");
+                    nextProgress += PROGRESS_INTERVAL;
+                }
+            }
+        }
+        
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        long count = migrated - migratedBefore;
+        System.out.println(String.format("✓ %d件の顧客を移行しました（%.1f秒、%.0f件/秒、累計 %d件）",
+            count, seconds, seconds > 0 ? count / seconds : 0, migrated));
+        if (skipped > 0) {
+            System.out.println("  Web版に同じIDの顧客がいたため " + skipped + "件を読み飛ばしました");
+        }
+    }
+    
+    /**
+     * lastId より後の移行対象を書き込む前に確認し、移行できる場合は true を返す
+     *
+     * 名前・メールアドレスが空の顧客がいる場合と、Web版に同じIDの顧客がいる場合（読み飛ばす指定がなければ）は、
+     * 該当する顧客IDを表示して false を返す。
+     */
+    private boolean check(int lastId) throws SQLException {
+        List<Integer> invalidIds = new ArrayList<>();
+        long invalid = 0;
+        List<Integer> conflictIds = new ArrayList<>();
+        long conflicts = 0;
+        while (true) {
+            List<Customer> batch = manager.getCustomersAfter(lastId, batchSize);
+            if (batch.isEmpty()) {
+                break;
+            }
+            Set<Integer> existing = existingIds(batch);
+            for (Customer customer : batch) {
+                // Web版では名前・メールアドレスは必須
+                if (isBlank(customer.getName()) || isBlank(customer.getEmail())) {
+                    if (invalid++ < MAX_LISTED_IDS) {
+                        invalidIds.add(customer.getId());
+                    }
+                }
+                if (existing.contains(customer.getId())) {
+                    if (conflicts++ < MAX_LISTED_IDS) {
+                        conflictIds.add(customer.getId());
+                    }
+                }
+            }
+            lastId = batch.get(batch.size() - 1).getId();
+        }
+        // 確認のための読み取りでトランザクションを開いたままにしない
+        connection.commit();
+        
+        boolean ok = true;
+        if (invalid > 0) {
+            System.err.println("✗ 名前またはメールアドレスが空の顧客が " + invalid + "件あります（CLI版で修正してから実行してください）: "
+                + listIds(invalidIds, invalid));
+            ok = false;
+        }
+        if (conflicts > 0 && !skipConflicts) {
+            System.err.println("✗ Web版に同じIDの顧客が " + conflicts + "件あります（--on-conflict skip で読み飛ばせます）: "
+                + listIds(conflictIds, conflicts));
+            ok = false;
+        }
+        if (!ok) {
+            System.err.println("✗ 移行を中止しました（何も書き込んでいません）");
+        }
+        return ok;
+    }
+    
+    /**
+     * バッチの顧客IDのうち、Web版にすでにある ID（バッチは ID 昇順）
+     */
+    private Set<Integer> existingIds(List<Customer> batch) throws SQLException {
+        Set<Integer> batchIds = new HashSet<>();
+        for (Customer customer : batch) {
+            batchIds.add(customer.getId());
+        }
+        Set<Integer> existing = new HashSet<>();
+        try (PreparedStatement select = connection.prepareStatement("SELECT id FROM customers WHERE id BETWEEN ? AND ?")) {
+            select.setLong(1, batch.get(0).getId());
+            select.setLong(2, batch.get(batch.size() - 1).getId());
+            try (ResultSet resultSet = select.executeQuery()) {
+                while (resultSet.next()) {
+                    int id = (int) resultSet.getLong(1);
+                    if (batchIds.contains(id)) {
+                        existing.add(id);
+                    }
+                }
+            }
+        }
+        return existing;
+    }
+    
+    private static String listIds(List<Integer> ids, long total) {
+        StringBuilder text = new StringBuilder();
+        for (Integer id : ids) {
+            if (text.length() > 0) {
+                text.append(", ");
+            }
+            text.append(id);
+        }
+        if (total > ids.size()) {
+            text.append(" ほか ").append(total - ids.size()).append("件");
+        }
+        return text.toString();
+    }
+    
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+    
+    private static void bind(PreparedStatement insert, Customer customer) throws SQLException {
+        insert.setLong(1, customer.getId());
+        insert.setString(2, customer.getName());
+        insert.setString(3, customer.getEmail());
+        insert.setString(4, customer.getPhone());
+        insert.setString(5, customer.getCompany());
+        insert.setString(6, customer.getAddress());
+        insert.setObject(7, customer.getRegisteredDate());
+        insert.setObject(8, customer.getLastContactDate());
+        insert.setString(9, customer.getNotes());
+    }
+    
+    private void saveCheckpoint(int lastId, long migrated) throws SQLException {
+        try (PreparedStatement update = connection.prepareStatement(
+                "UPDATE cli_migration_checkpoint SET last_id = ?, migrated = ?, updated_at = ? WHERE source = ?")) {
+            update.setInt(1, lastId);
+            update.setLong(2, migrated);
+            update.setObject(3, LocalDateTime.now());
+            update.setString(4, source);
+            if (update.executeUpdate() > 0) {
+                return;
+            }
+        }
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO cli_migration_checkpoint (source, last_id, migrated, updated_at) VALUES (?, ?, ?, ?)")) {
+            insert.setString(1, source);
+            insert.setInt(2, lastId);
+            insert.setLong(3, migrated);
+            insert.setObject(4, LocalDateTime.now());
+            insert.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,258 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 顧客データのスナップショット（customers.dat、作り直したものは customers.dat.<世代>.snapshot）
+ *
+ * 現行の形式（バージョン 2）:
+ *   ヘッダー   [MAGIC int][VERSION int][世代 long][件数 int][IDテーブルの位置 long]
+ *   レコード   [内容の長さ int][顧客（CustomerCodec）] × 件数（ID 昇順）
+ *   IDテーブル [顧客ID int][レコードの位置 long] × 件数（ID 昇順）
+ * 読み込み時はファイル全体をメモリマップし、顧客は MappedCustomerMap が必要になった時点で読む。
+ *
+ * 世代はこのスナップショットに反映済みの更新ログの番号で、読み込み時はこの世代以降のログを再生する。
+ * バージョン 1（ID テーブルなし）と旧形式（HashMap を ObjectOutputStream で書いたもの、世代 0）も読み込める。
+ */
+public final class CustomerSnapshotFile {
+    
+    static final int MAGIC = 0x43524D53; // "CRMS"
+    static final int VERSION = 2;
+    static final int HEADER_SIZE = 28;
+    static final int TABLE_ENTRY_SIZE = 12;
+    
+    private static final int JAVA_SERIALIZATION_MAGIC = 0xACED0005;
+    private static final int COUNT_POSITION = 16;
+    
+    private CustomerSnapshotFile() {
+    }
+    
+    /**
+     * 読み込んだスナップショット
+     */
+    public static final class Contents {
+        private final long generation;
+        private final MappedCustomerMap customers;
+        
+        Contents(long generation, MappedCustomerMap customers) {
+            this.generation = generation;
+            this.customers = customers;
+        }
+        
+        public long getGeneration() {
+            return generation;
+        }
+        
+        public MappedCustomerMap getCustomers() {
+            return customers;
+        }
+    }
+    
+    /**
+     * スナップショットを読み込み（ファイルがなければ null）
+     */
+    public static Contents read(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return null;
+        }
+        int magic;
+        int version;
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(path))) {
+            magic = in.readInt();
+            version = magic == MAGIC ? in.readInt() : 0;
+        }
+        if (magic == JAVA_SERIALIZATION_MAGIC) {
+            return readSerialized(path);
+        }
+        if (magic != MAGIC) {
+            throw new IOException("顧客データファイルの形式が不正です: " + path);
+        }
+        switch (version) {
+            case 1:
+                return readVersion1(path);
+            case VERSION:
+                return map(path);
+            default:
+                throw new IOException("未対応の顧客データファイルのバージョンです: " + version);
+        }
+    }
+    
+    /**
+     * 現行形式のファイルをメモリマップ（顧客はここでは読まない）
+     */
+    private static Contents map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("2GB を超える顧客データファイルには対応していません: " + path);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            long generation = buffer.getLong(8);
+            int count = buffer.getInt(COUNT_POSITION);
+            long tableOffset = buffer.getLong(COUNT_POSITION + 4);
+            if (tableOffset + (long) count * TABLE_ENTRY_SIZE != size) {
+                throw new IOException("顧客データファイルが壊れています: " + path);
+            }
+            return new Contents(generation, new MappedCustomerMap(buffer, count, (int) tableOffset));
+        }
+    }
+    
+    private static Contents readVersion1(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 64 * 1024))) {
+            in.readInt();
+            in.readInt();
+            long generation = in.readLong();
+            int count = in.readInt();
+            Map<Integer, Customer> customers = new HashMap<>(Math.max(16, (int) (count / 0.75f) + 1));
+            for (int i = 0; i < count; i++) {
+                Customer customer = CustomerCodec.read(in);
+                customers.put(customer.getId(), customer);
+            }
+            return new Contents(generation, new MappedCustomerMap(customers));
+        }
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static Contents readSerialized(Path path) throws IOException {
+        try (InputStream input = new BufferedInputStream(Files.newInputStream(path), 64 * 1024);
+             ObjectInputStream ois = new ObjectInputStream(input)) {
+            return new Contents(0, new MappedCustomerMap((Map<Integer, Customer>) ois.readObject()));
+        } catch (ClassNotFoundException e) {
+            throw new IOException(e);
+        }
+    }
+    
+    /**
+     * スナップショットの書き込みを開始
+     */
+    public static Writer createWriter(Path path, long generation) throws IOException {
+        return new Writer(path, generation);
+    }
+    
+    /**
+     * スナップショットの書き込み - 顧客を ID 昇順に渡し、最後に commit() する
+     *
+     * 一時ファイルに書いて同期してから名前を変えるため、途中で異常終了しても書きかけのファイルは
+     * スナップショットとして読まれない。既存のファイルは置き換えないので、書き込み先は
+     * メモリマップ中のスナップショットとは別の名前にすること。commit() せずに close() した場合は一時ファイルを削除する。
+     */
+    public static final class Writer implements Closeable {
+        private final Path path;
+        private final Path temp;
+        private final FileChannel channel;
+        private final DataOutputStream out;
+        private int[] ids = new int[1024];
+        private long[] offsets = new long[1024];
+        private int count;
+        private long position;
+        private boolean committed;
+        
+        private Writer(Path path, long generation) throws IOException {
+            this.path = path.toAbsolutePath();
+            this.temp = this.path.resolveSibling(this.path.getFileName() + ".tmp");
+            this.channel = FileChannel.open(temp,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            this.out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(generation);
+            // 件数と ID テーブルの位置は commit() で書き込む
+            out.writeInt(0);
+            out.writeLong(0L);
+            position = HEADER_SIZE;
+        }
+        
+        /**
+         * 顧客を書き込み
+         */
+        public void write(Customer customer) throws IOException {
+            ByteArrayRecord record = new ByteArrayRecord();
+            CustomerCodec.write(new DataOutputStream(record), customer);
+            writeRecord(customer.getId(), record.buffer(), 0, record.size());
+        }
+        
+        /**
+         * 既存のスナップショットのレコードをそのまま書き込み（内容の位置から長さ分）
+         */
+        public void writeRaw(int id, ByteBuffer source, int offset, int length) throws IOException {
+            byte[] bytes = new byte[length];
+            ByteBuffer view = source.duplicate();
+            view.position(offset);
+            view.get(bytes);
+            writeRecord(id, bytes, 0, length);
+        }
+        
+        private void writeRecord(int id, byte[] bytes, int offset, int length) throws IOException {
+            if (count > 0 && id <= ids[count - 1]) {
+                throw new IllegalStateException("顧客IDは昇順で書き込んでください: " + id);
+            }
+            if (count == ids.length) {
+                ids = Arrays.copyOf(ids, count * 2);
+                offsets = Arrays.copyOf(offsets, count * 2);
+            }
+            ids[count] = id;
+            offsets[count] = position;
+            count++;
+            out.writeInt(length);
+            out.write(bytes, offset, length);
+            position += 4 + length;
+        }
+        
+        /**
+         * ID テーブルとヘッダーを書き込み、同期してから書き込み先の名前に変える
+         */
+        public void commit() throws IOException {
+            long tableOffset = position;
+            for (int i = 0; i < count; i++) {
+                out.writeInt(ids[i]);
+                out.writeLong(offsets[i]);
+            }
+            out.flush();
+            ByteBuffer header = ByteBuffer.allocate(12);
+            header.putInt(count).putLong(tableOffset).flip();
+            channel.write(header, COUNT_POSITION);
+            channel.force(true);
+            channel.close();
+            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE);
+            committed = true;
+        }
+        
+        @Override
+        public void close() throws IOException {
+            if (!committed) {
+                channel.close();
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+    
+    /**
+     * 1 レコード分の書き込み先（内部配列をそのまま参照できる ByteArrayOutputStream）
+     */
+    private static final class ByteArrayRecord extends ByteArrayOutputStream {
+        ByteArrayRecord() {
+            super(128);
+        }
+        
+        byte[] buffer() {
+            return buf;
+        }
+    }
+}
@@ -0,0 +1,534 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * 顧客ID → 顧客 のマップ - メモリマップしたスナップショットの上に変更を重ねて持つ
+ *
+ * スナップショットの顧客は get() や走査で初めて必要になったときに読み込み、以降は使い回す。
+ * 件数・ID の存在確認・最大IDはスナップショットの ID テーブルだけで求めるため、
+ * 起動時に全顧客を読み込む必要はない。
+ *
+ * 参照（get() や走査）は複数のスレッドから同時に行ってよい。変更は他の操作と排他して行うこと
+ * （CustomerManager が書き込みロックの下で行う）。
+ */
+public class MappedCustomerMap extends AbstractMap<Integer, Customer> {
+    
+    /** スナップショット（なければ null） */
+    private final ByteBuffer base;
+    private final int baseCount;
+    private final int tableOffset;
+    /** スナップショットのうち削除済みのもの（ID テーブルの位置） */
+    private final BitSet removed = new BitSet();
+    /** スナップショットから読み込んだ（または置き換えた）顧客（rebase() で次のマップに引き継ぐ） */
+    private Map<Integer, Customer> loaded = new ConcurrentHashMap<>();
+    /** スナップショットにない（追加した）顧客 */
+    private final Map<Integer, Customer> added = new ConcurrentHashMap<>();
+    private int size;
+    private EntrySet entrySet;
+    /** 追加分の ID（昇順、追加・削除があるまで使い回す） */
+    private volatile int[] addedIds;
+    /**
+     * beginSnapshot() 以降の変更のうち、chunkAfter() で取り出し済みの顧客のもの
+     * （顧客ID → 変更後の顧客、削除は null。記録していなければ null）
+     */
+    private Map<Integer, Customer> changes;
+    /** chunkAfter() で取り出し済みの最大ID（これより大きい ID の変更は書き出す顧客に含まれる） */
+    private int snapshotCursor;
+    
+    /**
+     * 空のマップ
+     */
+    public MappedCustomerMap() {
+        this(null, 0, 0);
+    }
+    
+    /**
+     * 読み込み済みの顧客から作成（旧形式のファイル用）
+     */
+    public MappedCustomerMap(Map<Integer, Customer> customers) {
+        this(null, 0, 0);
+        putAll(customers);
+    }
+    
+    MappedCustomerMap(ByteBuffer base, int baseCount, int tableOffset) {
+        this.base = base;
+        this.baseCount = baseCount;
+        this.tableOffset = tableOffset;
+        this.size = baseCount;
+    }
+    
+    @Override
+    public int size() {
+        return size;
+    }
+    
+    @Override
+    public boolean containsKey(Object key) {
+        if (!(key instanceof Integer)) {
+            return false;
+        }
+        int id = (Integer) key;
+        return added.containsKey(id) || indexOf(id) >= 0;
+    }
+    
+    @Override
+    public Customer get(Object key) {
+        if (!(key instanceof Integer)) {
+            return null;
+        }
+        int id = (Integer) key;
+        Customer customer = added.get(id);
+        if (customer != null) {
+            return customer;
+        }
+        int index = indexOf(id);
+        if (index < 0) {
+            return null;
+        }
+        customer = loaded.get(id);
+        return customer != null ? customer : load(index);
+    }
+    
+    @Override
+    public Customer put(Integer key, Customer value) {
+        Customer previous = get(key);
+        int index = baseIndexOf(key);
+        if (index >= 0) {
+            removed.clear(index);
+            loaded.put(key, value);
+        } else if (added.put(key, value) == null) {
+            addedIds = null;
+        }
+        if (previous == null) {
+            size++;
+        }
+        recordChange(key, value);
+        return previous;
+    }
+    
+    @Override
+    public Customer remove(Object key) {
+        Customer previous = get(key);
+        if (previous == null) {
+            return null;
+        }
+        int id = (Integer) key;
+        loaded.remove(id);
+        if (added.remove(id) != null) {
+            addedIds = null;
+        }
+        int index = baseIndexOf(id);
+        if (index >= 0) {
+            removed.set(index);
+        }
+        size--;
+        recordChange(id, null);
+        return previous;
+    }
+    
+    /**
+     * 最大の顧客ID（顧客がいなければ 0）
+     */
+    public int maxId() {
+        int max = 0;
+        for (int index = baseCount - 1; index >= 0; index--) {
+            if (!removed.get(index)) {
+                max = idAt(index);
+                break;
+            }
+        }
+        for (Integer id : added.keySet()) {
+            max = Math.max(max, id);
+        }
+        return max;
+    }
+    
+    /**
+     * ID が afterId より大きい顧客を ID 昇順に最大 limit 件返す
+     *
+     * 読み込んでいないスナップショットの顧客はその場で読むが保持しないため、
+     * 全件を順に読んでもメモリ使用量は増えない。
+     */
+    public List<Customer> valuesAfter(int afterId, int limit) {
+        List<Customer> result = new ArrayList<>(Math.min(limit, size));
+        ByteBuffer record = base != null ? base.duplicate() : null;
+        int[] addedIdsInOrder = sortedAddedIds();
+        int addedIndex = upperBound(addedIdsInOrder, afterId);
+        int index = removed.nextClearBit(baseUpperBound(afterId));
+        while (result.size() < limit) {
+            boolean hasBase = index < baseCount;
+            boolean hasAdded = addedIndex < addedIdsInOrder.length;
+            if (hasBase && (!hasAdded || idAt(index) < addedIdsInOrder[addedIndex])) {
+                Customer customer = loaded.get(idAt(index));
+                if (customer == null) {
+                    record.position(recordOffset(index) + 4);
+                    customer = CustomerCodec.read(record);
+                }
+                result.add(customer);
+                index = removed.nextClearBit(index + 1);
+            } else if (hasAdded) {
+                result.add(added.get(addedIdsInOrder[addedIndex++]));
+            } else {
+                break;
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * 全顧客の会社名を渡す（読み込んでいないスナップショットの顧客は会社名だけを読む）
+     */
+    public void forEachCompany(Consumer<String> action) {
+        ByteBuffer record = base != null ? base.duplicate() : null;
+        for (int index = removed.nextClearBit(0); index < baseCount; index = removed.nextClearBit(index + 1)) {
+            Customer customer = loaded.get(idAt(index));
+            if (customer != null) {
+                action.accept(customer.getCompany());
+            } else {
+                record.position(recordOffset(index) + 4);
+                action.accept(CustomerCodec.readCompany(record));
+            }
+        }
+        for (Customer customer : added.values()) {
+            action.accept(customer.getCompany());
+        }
+    }
+    
+    /**
+     * スナップショットの ID 昇順、続いて追加分の順に走査する
+     */
+    @Override
+    public Set<Entry<Integer, Customer>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new EntrySet();
+        }
+        return entrySet;
+    }
+    
+    /**
+     * スナップショットの作成を開始 - 以降の変更を記録し、書き出したスナップショットに重ねられるようにする
+     *
+     * 記録するのは chunkAfter() で取り出し済みの顧客の変更だけ（まだ取り出していない顧客は変更後の内容で書き出される）。
+     *
+     * 書き出した後は、次の順で新しいスナップショットに切り替える（顧客IDは再利用されないため、
+     * このマップのスナップショットにある顧客は新しいスナップショットにもあり、読み込み済みの顧客は複製せずに引き継げる）。
+     *   1. takeChanges()（書き込みロックの下）で、それまでの変更を取り出す
+     *   2. prepareRebase()（ロックの外）で、読み込み済みの顧客を引き継ぎ、取り出した変更を重ねる
+     *   3. rebase()（書き込みロックの下）で、2 の間の変更だけを重ねて切り替える
+     */
+    public void beginSnapshot() {
+        changes = new HashMap<>();
+        snapshotCursor = Integer.MIN_VALUE;
+    }
+    
+    /**
+     * スナップショットの作成を取りやめ、変更の記録をやめる
+     */
+    public void endSnapshot() {
+        changes = null;
+    }
+    
+    /**
+     * 記録した変更を取り出し、以降の変更を記録し直す（書き込みロックの下で呼ぶ）
+     */
+    public Map<Integer, Customer> takeChanges() {
+        Map<Integer, Customer> taken = changes;
+        changes = new HashMap<>();
+        return taken;
+    }
+    
+    /**
+     * 書き出したスナップショットに、読み込み済みの顧客を引き継ぎ、takeChanges() で取り出した変更を重ねる
+     *
+     * スナップショットを書き終えてから、ロックの外で（このマップの変更と並行して）呼ぶ。読み込み済みの顧客のマップは
+     * このマップと共有し、このマップが最新に保つ。このマップのスナップショットにない顧客（追加分）も
+     * 読み込み済みとして登録するが、このマップはスナップショットにない ID を loaded から参照しないため、内容は変わらない。
+     * 登録した後に変更された顧客は記録されており、rebase() で最新になる。
+     */
+    public void prepareRebase(MappedCustomerMap snapshot, Map<Integer, Customer> taken) {
+        snapshot.loaded = loaded;
+        for (Customer customer : added.values()) {
+            if (snapshot.baseIndexOf(customer.getId()) >= 0) {
+                loaded.put(customer.getId(), customer);
+            }
+        }
+        for (Map.Entry<Integer, Customer> change : taken.entrySet()) {
+            snapshot.applyChange(this, change.getKey(), change.getValue());
+        }
+    }
+    
+    /**
+     * prepareRebase() の後の変更を重ねて、このマップと同じ内容になったスナップショットを返す（書き込みロックの下で呼ぶ）
+     *
+     * 以降はこのマップの代わりに返したマップを使う（古いスナップショットは参照しなくなる）。
+     */
+    public MappedCustomerMap rebase(MappedCustomerMap snapshot) {
+        for (Map.Entry<Integer, Customer> change : changes.entrySet()) {
+            snapshot.applyChange(this, change.getKey(), change.getValue());
+        }
+        changes = null;
+        return snapshot;
+    }
+    
+    private void recordChange(int id, Customer customer) {
+        if (changes != null && id <= snapshotCursor) {
+            changes.put(id, customer);
+        }
+    }
+    
+    /**
+     * 書き出した後の変更を 1 件重ねる（customer が null なら削除）
+     *
+     * previous のスナップショットにある顧客は、共有している loaded を previous が最新に保っているため、
+     * 削除だけを反映する（顧客IDは再利用されないので、削除した顧客が再び登録されることはない）。
+     */
+    private void applyChange(MappedCustomerMap previous, int id, Customer customer) {
+        int index = baseIndexOf(id);
+        if (index < 0) {
+            // 書き出した後に追加した顧客
+            if (customer != null) {
+                if (added.put(id, customer) == null) {
+                    addedIds = null;
+                    size++;
+                }
+            } else if (added.remove(id) != null) {
+                addedIds = null;
+                size--;
+            }
+        } else if (customer == null) {
+            loaded.remove(id);
+            if (!removed.get(index)) {
+                removed.set(index);
+                size--;
+            }
+        } else if (previous.baseIndexOf(id) < 0) {
+            loaded.put(id, customer);
+        }
+    }
+    
+    /**
+     * ID が afterId より大きい顧客を ID 昇順に最大 limit 件、スナップショットへ書き出せる形で取り出す
+     *
+     * 読み込んでいないスナップショットの顧客は元のファイルのレコードを指すだけで、読み込みも複製もしない。
+     * 顧客は置き換えで更新され、取り出した顧客が書き換わることはないため、書き出しは
+     * ロックの外（別スレッド）で行ってよい。スナップショットの作成中は、取り出し済みの顧客の変更を記録し始める。
+     */
+    public Chunk chunkAfter(int afterId, int limit) {
+        Chunk chunk = new Chunk(Math.min(limit, size));
+        int[] addedIdsInOrder = sortedAddedIds();
+        int addedIndex = upperBound(addedIdsInOrder, afterId);
+        int index = removed.nextClearBit(baseUpperBound(afterId));
+        while (chunk.count < limit) {
+            boolean hasBase = index < baseCount;
+            boolean hasAdded = addedIndex < addedIdsInOrder.length;
+            if (hasBase && (!hasAdded || idAt(index) < addedIdsInOrder[addedIndex])) {
+                int id = idAt(index);
+                chunk.add(id, loaded.get(id), recordOffset(index));
+                index = removed.nextClearBit(index + 1);
+            } else if (hasAdded) {
+                int id = addedIdsInOrder[addedIndex++];
+                chunk.add(id, added.get(id), -1);
+            } else {
+                break;
+            }
+        }
+        snapshotCursor = chunk.isEmpty() ? Integer.MAX_VALUE : chunk.lastId();
+        return chunk;
+    }
+    
+    /**
+     * chunkAfter() で取り出した顧客
+     */
+    public final class Chunk {
+        private final int[] ids;
+        /** 読み込み済み・追加した顧客（スナップショットのレコードをそのまま使う場合は null） */
+        private final Customer[] customers;
+        /** スナップショットのレコードの位置 */
+        private final int[] offsets;
+        private int count;
+        
+        private Chunk(int capacity) {
+            ids = new int[capacity];
+            customers = new Customer[capacity];
+            offsets = new int[capacity];
+        }
+        
+        private void add(int id, Customer customer, int offset) {
+            ids[count] = id;
+            customers[count] = customer;
+            offsets[count] = offset;
+            count++;
+        }
+        
+        public boolean isEmpty() {
+            return count == 0;
+        }
+        
+        /**
+         * 最後の顧客ID
+         */
+        public int lastId() {
+            return ids[count - 1];
+        }
+        
+        /**
+         * ID 昇順にスナップショットへ書き出す
+         */
+        public void writeTo(CustomerSnapshotFile.Writer writer) throws IOException {
+            for (int i = 0; i < count; i++) {
+                if (customers[i] != null) {
+                    writer.write(customers[i]);
+                } else {
+                    writer.writeRaw(ids[i], base, offsets[i] + 4, base.getInt(offsets[i]));
+                }
+            }
+        }
+    }
+    
+    /**
+     * 削除されていないスナップショットの顧客の位置（なければ -1）
+     */
+    private int indexOf(int id) {
+        int index = baseIndexOf(id);
+        return index >= 0 && !removed.get(index) ? index : -1;
+    }
+    
+    /**
+     * ID テーブルを二分探索
+     */
+    private int baseIndexOf(int id) {
+        int low = 0;
+        int high = baseCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midId = idAt(mid);
+            if (midId < id) {
+                low = mid + 1;
+            } else if (midId > id) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * ID が id より大きい最初のスナップショットの顧客の位置
+     */
+    private int baseUpperBound(int id) {
+        int low = 0;
+        int high = baseCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (idAt(mid) <= id) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+    
+    private static int upperBound(int[] ids, int id) {
+        int index = Arrays.binarySearch(ids, id);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+    
+    private int[] sortedAddedIds() {
+        int[] ids = addedIds;
+        if (ids == null) {
+            ids = new int[added.size()];
+            int i = 0;
+            for (Integer id : added.keySet()) {
+                ids[i++] = id;
+            }
+            Arrays.sort(ids);
+            addedIds = ids;
+        }
+        return ids;
+    }
+    
+    private int idAt(int index) {
+        return base.getInt(tableOffset + index * CustomerSnapshotFile.TABLE_ENTRY_SIZE);
+    }
+    
+    private int recordOffset(int index) {
+        return (int) base.getLong(tableOffset + index * CustomerSnapshotFile.TABLE_ENTRY_SIZE + 4);
+    }
+    
+    /**
+     * スナップショットから顧客を読み込んで保持する（同時に読み込まれた場合は先に保持したものを返す）
+     */
+    private Customer load(int index) {
+        ByteBuffer record = base.duplicate();
+        record.position(recordOffset(index) + 4);
+        Customer customer = CustomerCodec.read(record);
+        Customer existing = loaded.putIfAbsent(customer.getId(), customer);
+        return existing != null ? existing : customer;
+    }
+    
+    private final class EntrySet extends AbstractSet<Entry<Integer, Customer>> {
+        
+        @Override
+        public int size() {
+            return size;
+        }
+        
+        @Override
+        public Iterator<Entry<Integer, Customer>> iterator() {
+            return new Iterator<Entry<Integer, Customer>>() {
+                private int index = nextBaseIndex(0);
+                private final Iterator<Customer> addedIterator = sortedAdded().iterator();
+                
+                @Override
+                public boolean hasNext() {
+                    return index < baseCount || addedIterator.hasNext();
+                }
+                
+                @Override
+                public Entry<Integer, Customer> next() {
+                    Customer customer;
+                    if (index < baseCount) {
+                        int id = idAt(index);
+                        customer = loaded.get(id);
+                        if (customer == null) {
+                            customer = load(index);
+                        }
+                        index = nextBaseIndex(index + 1);
+                    } else if (addedIterator.hasNext()) {
+                        customer = addedIterator.next();
+                    } else {
+                        throw new NoSuchElementException();
+                    }
+                    return new SimpleImmutableEntry<>(customer.getId(), customer);
+                }
+            };
+        }
+        
+        private int nextBaseIndex(int from) {
+            int index = removed.nextClearBit(from);
+            return Math.min(index, baseCount);
+        }
+        
+        private List<Customer> sortedAdded() {
+            List<Customer> customers = new ArrayList<>(added.values());
+            Collections.sort(customers, (a, b) -> Integer.compare(a.getId(), b.getId()));
+            return customers;
+        }
+    }
+}
@@ -2,11 +2,13 @@ package com.example.crm;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * CRM アプリケーション メインクラス
  */
 @SpringBootApplication
+@EnableScheduling
 public class CrmApplication {
     
     public static void main(String[] args) {
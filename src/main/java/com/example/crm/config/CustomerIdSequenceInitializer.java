@@ -0,0 +1,46 @@
+package com.example.crm.config;
+
+import com.example.crm.entity.Customer;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * 顧客IDシーケンスの初期化
+ *
+ * IDENTITY 採番で作られた既存データや、JDBC で直接投入したデータがある場合、
+ * シーケンスの次の値が既存の最大IDより小さいと採番が衝突する。
+ * 起動時に最大IDより後ろから払い出されるようシーケンスを進めておく。
+ */
+@Component
+public class CustomerIdSequenceInitializer {
+    
+    private static final Logger log = LoggerFactory.getLogger(CustomerIdSequenceInitializer.class);
+    
+    private static final String SEQUENCE_NAME = "CUSTOMERS_SEQ";
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    // スキーマ更新（ddl-auto）の完了後に実行するため EntityManagerFactory に依存させる
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    
+    @PostConstruct
+    public void synchronize() {
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM customers", Long.class);
+        Long nextValue = jdbcTemplate.queryForObject(
+            "SELECT BASE_VALUE FROM INFORMATION_SCHEMA.SEQUENCES WHERE SEQUENCE_NAME = ?", Long.class, SEQUENCE_NAME);
+        
+        // pooled オプティマイザはシーケンス値 v に対して (v - 払い出し単位, v] の ID を使う
+        long required = maxId + Customer.ID_ALLOCATION_SIZE;
+        if (maxId > 0 && nextValue != null && nextValue < required) {
+            jdbcTemplate.execute("ALTER SEQUENCE " + SEQUENCE_NAME + " RESTART WITH " + required);
+            log.info("顧客IDシーケンスを {} に進めました（既存の最大ID: {}）", required, maxId);
+        }
+    }
+}
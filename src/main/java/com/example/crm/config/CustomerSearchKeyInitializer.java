@@ -0,0 +1,85 @@
+package com.example.crm.config;
+
+import com.example.crm.entity.Customer;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 顧客の検索キー列の初期化
+ *
+ * 検索キー列（name_key など）の追加前からある行や、JDBC で直接投入した行（CLI版からの移行など）は
+ * キーが未設定で検索に一致しない。起動時にキーが空の行を ID 順に分割して埋めておく。
+ */
+@Component
+public class CustomerSearchKeyInitializer {
+    
+    private static final Logger log = LoggerFactory.getLogger(CustomerSearchKeyInitializer.class);
+    
+    private static final int BATCH_SIZE = 1000;
+    
+    private static final String FIRST_ID_SQL = "SELECT MIN(id) FROM customers WHERE name_key IS NULL";
+    
+    // name_key IS NULL を条件に含めると name_key のインデックスが選ばれ、分割ごとに読み直しになる。
+    // 主キーの範囲で読み、キーが設定済みの行は読み飛ばす
+    private static final String SELECT_SQL =
+        "SELECT id, name, company, email, name_key FROM customers WHERE id >= ? ORDER BY id LIMIT " + BATCH_SIZE;
+    
+    private static final String UPDATE_SQL =
+        "UPDATE customers SET name_key = ?, company_key = ?, email_key = ? WHERE id = ?";
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    // スキーマ更新（ddl-auto）の完了後に実行するため EntityManagerFactory に依存させる
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    
+    @PostConstruct
+    public void backfill() {
+        Long firstId = jdbcTemplate.queryForObject(FIRST_ID_SQL, Long.class);
+        if (firstId == null) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        long nextId = firstId;
+        long updated = 0;
+        while (true) {
+            List<Object[]> batch = new ArrayList<>();
+            long[] lastId = {-1};
+            jdbcTemplate.query(SELECT_SQL, rs -> {
+                lastId[0] = rs.getLong("id");
+                if (rs.getString("name_key") == null) {
+                    batch.add(new Object[] {
+                        Customer.searchKey(rs.getString("name")),
+                        Customer.searchKey(rs.getString("company")),
+                        Customer.searchKey(rs.getString("email")),
+                        lastId[0]
+                    });
+                }
+            }, nextId);
+            if (lastId[0] < 0) {
+                break;
+            }
+            if (!batch.isEmpty()) {
+                transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(UPDATE_SQL, batch));
+                updated += batch.size();
+            }
+            nextId = lastId[0] + 1;
+        }
+        if (updated > 0) {
+            log.info("顧客の検索キーを設定しました: {}件, {}ms", updated, System.currentTimeMillis() - start);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.crm.config;
+
+import com.example.crm.metrics.EndpointQueryMetricsInterceptor;
+import com.example.crm.metrics.EntityLoadCountingListener;
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * メトリクス設定
+ *
+ * CustomerService の @Timed を有効にし、エンドポイントごとの SQL 発行数・
+ * エンティティ読み込み数を記録するインターセプターとリスナーを登録する。
+ */
+@Configuration
+public class MetricsConfig implements WebMvcConfigurer {
+    
+    @Autowired
+    private EndpointQueryMetricsInterceptor endpointQueryMetricsInterceptor;
+    
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+        return new TimedAspect(meterRegistry);
+    }
+    
+    @PostConstruct
+    public void registerEntityLoadListener() {
+        entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+            .getServiceRegistry()
+            .requireService(EventListenerRegistry.class)
+            .appendListeners(EventType.POST_LOAD, new EntityLoadCountingListener());
+    }
+    
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(endpointQueryMetricsInterceptor)
+            .excludePathPatterns("/css/**", "/h2-console/**", "/error");
+    }
+}
@@ -0,0 +1,198 @@
+package com.example.crm.controller;
+
+import com.example.crm.dto.AutocompleteResult;
+import com.example.crm.dto.CustomerPage;
+import com.example.crm.dto.CustomerStatistics;
+import com.example.crm.entity.Customer;
+import com.example.crm.repository.CustomerMatchMode;
+import com.example.crm.repository.CustomerSearchType;
+import com.example.crm.search.CustomerAutocompleteIndex;
+import com.example.crm.service.CustomerExportService;
+import com.example.crm.service.CustomerService;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.FieldError;
+import org.springframework.web.bind.MethodArgumentNotValidException;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * 顧客 REST API コントローラー（JSON）
+ *
+ * 画面用の CustomerController と同じ CustomerService を使う。
+ * 件数の多い一覧・検索結果は /api/customers/stream で NDJSON としてストリーミングする。
+ */
+@RestController
+@RequestMapping("/api/customers")
+public class CustomerApiController {
+    
+    /** NDJSON のメディアタイプ */
+    public static final String NDJSON = "application/x-ndjson";
+    
+    /** 統計で返す会社数のデフォルト */
+    private static final int DEFAULT_TOP_COMPANIES = 10;
+    
+    @Autowired
+    private CustomerService customerService;
+    
+    @Autowired
+    private CustomerExportService customerExportService;
+    
+    @Autowired
+    private CustomerAutocompleteIndex autocompleteIndex;
+    
+    /**
+     * 顧客一覧・検索結果を 1 ページ分取得（キーセットページング）
+     */
+    @GetMapping
+    public CustomerPage listCustomers(@RequestParam(required = false) String keyword,
+                                      @RequestParam(required = false) String searchType,
+                                      @RequestParam(required = false) String match,
+                                      @RequestParam(required = false) String after,
+                                      @RequestParam(required = false) String before,
+                                      @RequestParam(defaultValue = "" + CustomerService.DEFAULT_PAGE_SIZE) int size) {
+        return customerService.getCustomerPage(CustomerSearchType.fromParam(searchType),
+            CustomerMatchMode.fromParam(match), keyword, after, before, size);
+    }
+    
+    /**
+     * 顧客一覧・検索結果の全件を NDJSON でストリーミング（1 行 1 件）
+     */
+    @GetMapping(value = "/stream", produces = NDJSON)
+    public void streamCustomers(@RequestParam(required = false) String keyword,
+                                @RequestParam(required = false) String searchType,
+                                @RequestParam(required = false) String match,
+                                HttpServletResponse response) throws IOException {
+        response.setContentType(NDJSON + ";charset=UTF-8");
+        customerExportService.streamSummaries(response.getOutputStream(),
+            CustomerSearchType.fromParam(searchType), CustomerMatchMode.fromParam(match), keyword);
+    }
+    
+    /**
+     * 検索ボックスの入力候補（接頭辞に一致する名前・会社名を顧客数の多い順に最大 limit 件ずつ）
+     *
+     * DB は参照せず、メモリ上のトライ木から返す。
+     */
+    @GetMapping("/autocomplete")
+    public AutocompleteResult autocomplete(@RequestParam(defaultValue = "") String prefix,
+                                           @RequestParam(defaultValue = "" + CustomerAutocompleteIndex.MAX_SUGGESTIONS) int limit) {
+        return autocompleteIndex.suggest(prefix, limit);
+    }
+    
+    /**
+     * 顧客詳細
+     *
+     * ETag（バージョン）・Last-Modified を付ける。If-None-Match / If-Modified-Since が
+     * 一致すれば本文なしの 304 になる。
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<Customer> getCustomer(@PathVariable Long id) {
+        return customerService.getCustomerById(id)
+            .map(customer -> withValidators(ResponseEntity.ok(), customer).body(customer))
+            .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+    
+    /**
+     * 新規登録（ID はサーバーで採番）
+     */
+    @PostMapping
+    public ResponseEntity<Customer> createCustomer(@Valid @RequestBody Customer customer) {
+        customer.setId(null);
+        Customer saved = customerService.saveCustomer(customer);
+        URI location = ServletUriComponentsBuilder.fromCurrentRequest()
+            .path("/{id}")
+            .buildAndExpand(saved.getId())
+            .toUri();
+        return ResponseEntity.created(location).body(saved);
+    }
+    
+    /**
+     * 更新（登録日時は変更しない）
+     *
+     * If-Match を指定した場合は現在の ETag と一致しなければ 412。指定しない場合は本文の version が
+     * 現在のバージョンと一致しなければ 409（取得後に他から更新されていた）。
+     */
+    @PutMapping("/{id}")
+    public ResponseEntity<Customer> updateCustomer(@PathVariable Long id, @Valid @RequestBody Customer customer,
+                                                   @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Optional<Customer> current = customerService.getCustomerById(id);
+        if (current.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (ifMatch != null) {
+            if (!CustomerHttpCaching.matchesIfMatch(ifMatch, current.get())) {
+                return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+            }
+            customer.setVersion(current.get().getVersion());
+        }
+        customer.setId(id);
+        customer.setRegisteredDate(current.get().getRegisteredDate());
+        Customer saved = customerService.saveCustomer(customer);
+        return withValidators(ResponseEntity.ok(), saved).body(saved);
+    }
+    
+    /**
+     * 削除（If-Match を指定した場合は現在の ETag と一致しなければ 412）
+     */
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> deleteCustomer(@PathVariable Long id,
+                                               @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Optional<Customer> current = customerService.getCustomerById(id);
+        if (current.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (ifMatch != null && !CustomerHttpCaching.matchesIfMatch(ifMatch, current.get())) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+        }
+        customerService.deleteCustomer(id);
+        return ResponseEntity.noContent().build();
+    }
+    
+    /**
+     * 統計情報（顧客数と、顧客数の多い上位 limit 社）
+     */
+    @GetMapping("/statistics")
+    public CustomerStatistics getStatistics(@RequestParam(defaultValue = "" + DEFAULT_TOP_COMPANIES) int limit) {
+        return new CustomerStatistics(customerService.getCustomerCount(),
+            customerService.getTopCompanies(Math.max(0, limit)));
+    }
+    
+    private static ResponseEntity.BodyBuilder withValidators(ResponseEntity.BodyBuilder builder, Customer customer) {
+        return builder.eTag(CustomerHttpCaching.etag(customer))
+            .lastModified(CustomerHttpCaching.lastModified(customer))
+            .cacheControl(CustomerHttpCaching.CACHE_CONTROL);
+    }
+    
+    /**
+     * 更新の競合（取得後に他から更新された）
+     */
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public Map<String, String> handleConflict(OptimisticLockingFailureException e) {
+        return Map.of("message", "他から先に更新されています。最新の内容を取得してから再度更新してください");
+    }
+    
+    /**
+     * 入力チェックのエラー（項目名 → メッセージ）
+     */
+    @ExceptionHandler(MethodArgumentNotValidException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public Map<String, String> handleValidationError(MethodArgumentNotValidException e) {
+        Map<String, String> errors = new LinkedHashMap<>();
+        for (FieldError error : e.getBindingResult().getFieldErrors()) {
+            errors.putIfAbsent(error.getField(), error.getDefaultMessage());
+        }
+        return errors;
+    }
+}
@@ -1,16 +1,39 @@
 package com.example.crm.controller;
 
+import com.example.crm.duplicate.DuplicateDetectionService;
+import com.example.crm.dto.BulkOperationResult;
+import com.example.crm.dto.CompanyCount;
+import com.example.crm.dto.CustomerPage;
+import com.example.crm.dto.DuplicateProgress;
+import com.example.crm.dto.ImportResult;
 import com.example.crm.entity.Customer;
+import com.example.crm.io.CustomerFileFormat;
+import com.example.crm.repository.CustomerMatchMode;
+import com.example.crm.repository.CustomerSearchType;
+import com.example.crm.repository.CustomerUpdateField;
+import com.example.crm.service.CustomerExportService;
+import com.example.crm.service.CustomerImportService;
 import com.example.crm.service.CustomerService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
+import org.springframework.web.servlet.support.RequestContextUtils;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -20,31 +43,74 @@ import java.util.Optional;
 @RequestMapping("/customers")
 public class CustomerController {
     
+    /** 統計ページに表示する会社数 */
+    private static final int STATISTICS_TOP_COMPANIES = 10;
+    
     @Autowired
     private CustomerService customerService;
     
+    @Autowired
+    private CustomerImportService customerImportService;
+    
+    @Autowired
+    private CustomerExportService customerExportService;
+    
+    @Autowired
+    private RenderedFragmentCache fragmentCache;
+    
+    @Autowired
+    private DuplicateDetectionService duplicateDetectionService;
+    
     /**
      * トップページ（顧客一覧）
+     *
+     * 既定の件数の先頭ページは描画済みの一覧（RenderedFragmentCache）を使い、
+     * 顧客データが変更されるまでは DB を参照しない。
      */
     @GetMapping({"", "/"})
-    public String listCustomers(Model model) {
-        List<Customer> customers = customerService.getAllCustomers();
-        model.addAttribute("customers", customers);
-        model.addAttribute("totalCount", customers.size());
+    public String listCustomers(@RequestParam(required = false) String after,
+                                @RequestParam(required = false) String before,
+                                @RequestParam(defaultValue = "" + CustomerService.DEFAULT_PAGE_SIZE) int size,
+                                Model model, HttpServletRequest request, HttpServletResponse response) {
+        if (after == null && before == null && size == CustomerService.DEFAULT_PAGE_SIZE) {
+            model.addAttribute("customerTableHtml", fragmentCache.get("customerTable",
+                () -> pageAttributes(customerService.getCustomerPage(CustomerSearchType.ALL, null, null, null, size)),
+                request, response));
+            model.addAttribute("pageSize", size);
+            return "customers/list";
+        }
+        CustomerPage page = customerService.getCustomerPage(CustomerSearchType.ALL, null, after, before, size);
+        addPageAttributes(model, page);
         return "customers/list";
     }
     
     /**
      * 顧客詳細
+     *
+     * ETag（バージョン）・Last-Modified を付け、変更がなければ描画せずに 304 を返す。
+     * 更新後のリダイレクトなどでメッセージ（フラッシュ属性）がある場合は、内容が変わっていなくても
+     * 描画し、メッセージ付きのページはキャッシュさせない。
      */
     @GetMapping("/{id}")
-    public String viewCustomer(@PathVariable Long id, Model model, RedirectAttributes redirectAttributes) {
+    public String viewCustomer(@PathVariable Long id, Model model, RedirectAttributes redirectAttributes,
+                               WebRequest webRequest, HttpServletRequest request, HttpServletResponse response) {
         Optional<Customer> customerOpt = customerService.getCustomerById(id);
         if (customerOpt.isEmpty()) {
             redirectAttributes.addFlashAttribute("errorMessage", "顧客が見つかりません");
             return "redirect:/customers";
         }
-        model.addAttribute("customer", customerOpt.get());
+        Customer customer = customerOpt.get();
+        Map<String, ?> flashAttributes = RequestContextUtils.getInputFlashMap(request);
+        if (flashAttributes != null && !flashAttributes.isEmpty()) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noStore().getHeaderValue());
+        } else {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, CustomerHttpCaching.CACHE_CONTROL.getHeaderValue());
+            if (webRequest.checkNotModified(CustomerHttpCaching.etag(customer),
+                    CustomerHttpCaching.lastModified(customer))) {
+                return null;
+            }
+        }
+        model.addAttribute("customer", customer);
         return "customers/detail";
     }
     
@@ -73,6 +139,51 @@ public class CustomerController {
         return "redirect:/customers";
     }
     
+    /**
+     * 一括登録処理（CSV / JSON Lines）
+     */
+    @PostMapping("/import")
+    public String importCustomers(@RequestParam("file") MultipartFile file,
+                                  @RequestParam(required = false) String format,
+                                  RedirectAttributes redirectAttributes) {
+        if (file.isEmpty()) {
+            redirectAttributes.addFlashAttribute("errorMessage", "ファイルを選択してください");
+            return "redirect:/customers";
+        }
+        
+        CustomerFileFormat importFormat = CustomerFileFormat.detect(format, file.getOriginalFilename());
+        try (InputStream input = file.getInputStream()) {
+            ImportResult result = customerImportService.importCustomers(input, importFormat);
+            if (result.isStopped()) {
+                redirectAttributes.addFlashAttribute("errorMessage",
+                    String.format("%d行目以降を登録できなかったため中断しました（%d件は登録済み、エラー %d件）: %s",
+                        result.getStoppedAtLine(), result.getImportedCount(), result.getRejectedCount(),
+                        result.getStopReason()));
+            } else {
+                redirectAttributes.addFlashAttribute("successMessage",
+                    String.format("%d件の顧客を一括登録しました（エラー %d件、%.1f秒）",
+                        result.getImportedCount(), result.getRejectedCount(), result.getElapsedMillis() / 1000.0));
+            }
+            redirectAttributes.addFlashAttribute("importErrors", result.getErrors());
+        } catch (IOException | IllegalArgumentException e) {
+            redirectAttributes.addFlashAttribute("errorMessage", "一括登録に失敗しました: " + e.getMessage());
+        }
+        return "redirect:/customers";
+    }
+    
+    /**
+     * エクスポート（CSV / NDJSON をレスポンスに直接ストリーミング）
+     */
+    @GetMapping("/export")
+    public void exportCustomers(@RequestParam(defaultValue = "csv") String format,
+                                HttpServletResponse response) throws IOException {
+        CustomerFileFormat exportFormat = CustomerFileFormat.detect(format, null);
+        response.setContentType(exportFormat.getContentType() + ";charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+            "attachment; filename=\"customers." + exportFormat.getExtension() + "\"");
+        customerExportService.exportCustomers(response.getOutputStream(), exportFormat);
+    }
+    
     /**
      * 編集フォーム表示
      */
@@ -89,6 +200,9 @@ public class CustomerController {
     
     /**
      * 更新処理
+     *
+     * 編集フォームを開いた後に他のユーザーが更新していた場合（バージョン不一致）は保存せず、
+     * 最新の内容で編集フォームを開き直す。
      */
     @PostMapping("/{id}")
     public String updateCustomer(@PathVariable Long id,
@@ -100,7 +214,13 @@ public class CustomerController {
         }
         
         customer.setId(id);
-        customerService.saveCustomer(customer);
+        try {
+            customerService.saveCustomer(customer);
+        } catch (OptimisticLockingFailureException e) {
+            redirectAttributes.addFlashAttribute("errorMessage",
+                "他のユーザーが先に更新したため保存できませんでした。最新の内容を確認して再度編集してください");
+            return "redirect:/customers/" + id + "/edit";
+        }
         redirectAttributes.addFlashAttribute("successMessage", "顧客情報を更新しました");
         return "redirect:/customers/" + id;
     }
@@ -119,51 +239,141 @@ public class CustomerController {
         return "redirect:/customers";
     }
     
+    /**
+     * 一括削除処理（一覧で選択した顧客）
+     */
+    @PostMapping("/bulk-delete")
+    public String deleteCustomers(@RequestParam(required = false) List<Long> ids,
+                                  RedirectAttributes redirectAttributes) {
+        try {
+            BulkOperationResult result = customerService.deleteCustomers(ids);
+            redirectAttributes.addFlashAttribute("successMessage", bulkMessage("削除", result));
+        } catch (IllegalArgumentException e) {
+            redirectAttributes.addFlashAttribute("errorMessage", e.getMessage());
+        }
+        return "redirect:/customers";
+    }
+    
+    /**
+     * 一括削除処理（検索条件に一致する顧客すべて）
+     */
+    @PostMapping("/search/delete")
+    public String deleteMatchingCustomers(@RequestParam(required = false) String keyword,
+                                          @RequestParam(required = false) String searchType,
+                                          @RequestParam(required = false) String match,
+                                          RedirectAttributes redirectAttributes) {
+        try {
+            BulkOperationResult result = customerService.deleteMatching(CustomerSearchType.fromParam(searchType),
+                CustomerMatchMode.fromParam(match), keyword);
+            redirectAttributes.addFlashAttribute("successMessage", bulkMessage("削除", result));
+        } catch (IllegalArgumentException e) {
+            redirectAttributes.addFlashAttribute("errorMessage", e.getMessage());
+        }
+        return "redirect:/customers";
+    }
+    
+    /**
+     * 一括更新処理（一覧で選択した顧客の会社名・メモを同じ値に変更）
+     */
+    @PostMapping("/bulk-update")
+    public String updateCustomers(@RequestParam(required = false) List<Long> ids,
+                                  @RequestParam String field,
+                                  @RequestParam(required = false) String value,
+                                  RedirectAttributes redirectAttributes) {
+        try {
+            BulkOperationResult result = customerService.updateField(ids, CustomerUpdateField.fromParam(field), value);
+            redirectAttributes.addFlashAttribute("successMessage", bulkMessage("更新", result));
+        } catch (IllegalArgumentException e) {
+            redirectAttributes.addFlashAttribute("errorMessage", e.getMessage());
+        }
+        return "redirect:/customers";
+    }
+    
+    private static String bulkMessage(String operation, BulkOperationResult result) {
+        return String.format("%d件の顧客を%sしました（対象 %d件、%d回に分けて実行、%.1f秒）",
+            result.getAffectedCount(), operation, result.getTargetCount(), result.getBatchCount(),
+            result.getElapsedMillis() / 1000.0);
+    }
+    
     /**
      * 検索処理
      */
     @GetMapping("/search")
     public String searchCustomers(@RequestParam(required = false) String keyword,
                                   @RequestParam(required = false) String searchType,
+                                  @RequestParam(required = false) String match,
+                                  @RequestParam(required = false) String after,
+                                  @RequestParam(required = false) String before,
+                                  @RequestParam(defaultValue = "" + CustomerService.DEFAULT_PAGE_SIZE) int size,
                                   Model model) {
-        List<Customer> customers;
+        CustomerPage page = customerService.getCustomerPage(CustomerSearchType.fromParam(searchType),
+            CustomerMatchMode.fromParam(match), keyword, after, before, size);
         
-        if (keyword == null || keyword.trim().isEmpty()) {
-            customers = customerService.getAllCustomers();
-        } else {
-            switch (searchType != null ? searchType : "all") {
-                case "name":
-                    customers = customerService.searchByName(keyword);
-                    break;
-                case "company":
-                    customers = customerService.searchByCompany(keyword);
-                    break;
-                case "email":
-                    customers = customerService.searchByEmail(keyword);
-                    break;
-                default:
-                    customers = customerService.searchAll(keyword);
-            }
-        }
-        
-        model.addAttribute("customers", customers);
+        addPageAttributes(model, page);
         model.addAttribute("keyword", keyword);
         model.addAttribute("searchType", searchType);
-        model.addAttribute("totalCount", customers.size());
+        model.addAttribute("match", match);
         return "customers/list";
     }
     
+    /**
+     * 一覧画面のページ情報をモデルに設定
+     */
+    private void addPageAttributes(Model model, CustomerPage page) {
+        model.addAllAttributes(pageAttributes(page));
+        model.addAttribute("pageSize", page.getPageSize());
+    }
+    
+    /**
+     * 一覧の断片（customers/fragments :: customerTable）の変数
+     */
+    private static Map<String, Object> pageAttributes(CustomerPage page) {
+        return Map.of("customers", page.getContent(), "page", page, "totalCount", page.getTotalCount());
+    }
+    
     /**
      * 統計ページ
+     *
+     * 総顧客数・会社別顧客数は描画済みの HTML（RenderedFragmentCache）を使う。
      */
     @GetMapping("/statistics")
-    public String showStatistics(Model model) {
-        long totalCount = customerService.getCustomerCount();
-        List<Object[]> companyStats = customerService.getCustomerCountByCompany();
-        
-        model.addAttribute("totalCount", totalCount);
-        model.addAttribute("companyStats", companyStats);
+    public String showStatistics(Model model, HttpServletRequest request, HttpServletResponse response) {
+        model.addAttribute("statisticsHtml", fragmentCache.get("statistics", () -> {
+            long totalCount = customerService.getCustomerCount();
+            List<CompanyCount> companyStats = customerService.getTopCompanies(STATISTICS_TOP_COMPANIES);
+            return Map.of("totalCount", totalCount, "companyStats", companyStats);
+        }, request, response));
         return "customers/statistics";
     }
+    
+    /**
+     * 重複候補ページ（最後に検出した結果と、実行中なら進み具合）
+     */
+    @GetMapping("/duplicates")
+    public String showDuplicates(Model model) {
+        DuplicateProgress progress = duplicateDetectionService.getProgress();
+        model.addAttribute("report", duplicateDetectionService.getLatestReport());
+        model.addAttribute("progress", progress);
+        model.addAttribute("running", progress != null);
+        if (progress == null && duplicateDetectionService.getLastError() != null && !model.containsAttribute("errorMessage")) {
+            model.addAttribute("errorMessage", duplicateDetectionService.getLastError());
+        }
+        return "customers/duplicates";
+    }
+    
+    /**
+     * 重複候補の検出をバックグラウンドで開始し、すぐに重複候補ページへ戻る
+     */
+    @PostMapping("/duplicates")
+    public String detectDuplicates(RedirectAttributes redirectAttributes) {
+        try {
+            duplicateDetectionService.start();
+            redirectAttributes.addFlashAttribute("successMessage",
+                "重複候補の検出を開始しました。終わるまでこのページに進み具合を表示します");
+        } catch (IllegalStateException e) {
+            redirectAttributes.addFlashAttribute("errorMessage", e.getMessage());
+        }
+        return "redirect:/customers/duplicates";
+    }
 }
 
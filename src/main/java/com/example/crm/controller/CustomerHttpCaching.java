@@ -0,0 +1,49 @@
+package com.example.crm.controller;
+
+import com.example.crm.entity.Customer;
+import org.springframework.http.CacheControl;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * 顧客詳細の条件付きリクエスト用の検証子（ETag・Last-Modified）
+ *
+ * ETag は顧客のバージョンから作る強い ETag。Last-Modified は最終連絡日
+ * （更新のたびに設定される）で、未設定なら登録日時。
+ */
+final class CustomerHttpCaching {
+    
+    /** ブラウザにキャッシュさせるが、表示のたびに再検証させる（共有キャッシュには載せない） */
+    static final CacheControl CACHE_CONTROL = CacheControl.noCache().cachePrivate();
+    
+    private CustomerHttpCaching() {
+    }
+    
+    static String etag(Customer customer) {
+        return "\"" + customer.getVersion() + "\"";
+    }
+    
+    /**
+     * 最終更新日時（エポックミリ秒、不明な場合は -1）
+     */
+    static long lastModified(Customer customer) {
+        LocalDateTime modified = customer.getLastContactDate() != null
+            ? customer.getLastContactDate() : customer.getRegisteredDate();
+        return modified != null ? modified.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : -1;
+    }
+    
+    /**
+     * If-Match ヘッダーの値が現在の ETag に一致するか（* は常に一致、弱い ETag は一致しない）
+     */
+    static boolean matchesIfMatch(String ifMatch, Customer customer) {
+        String current = etag(customer);
+        for (String tag : ifMatch.split(",")) {
+            String trimmed = tag.trim();
+            if (trimmed.equals("*") || trimmed.equals(current)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.crm.controller;
+
+import com.example.crm.service.CustomerDataVersion;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.context.WebContext;
+import org.thymeleaf.web.servlet.JakartaServletWebApplication;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * 描画済みの画面断片（HTML）のキャッシュ
+ *
+ * 断片ごとに、描画した時点の CustomerDataVersion と HTML を組で保持する。
+ * バージョンが同じ間はモデルの取得（DB の参照）もテンプレートの描画も行わずに保持している HTML を返し、
+ * 顧客データが変更されてバージョンが進んだ後の最初の要求で描画し直す。
+ * 保持するのはパラメーターのない断片（統計・一覧の先頭ページ）だけなので、件数は断片の種類数で頭打ちになる。
+ *
+ * キャッシュのヒット・ミスは crm.view.fragments（fragment・result タグ付き）として記録する。
+ */
+@Component
+public class RenderedFragmentCache {
+    
+    /** 断片を定義しているテンプレート */
+    private static final String FRAGMENTS_TEMPLATE = "customers/fragments";
+    
+    /**
+     * 描画済みの断片（描画を始めた時点のバージョン）
+     */
+    private static final class Fragment {
+        final long version;
+        final String html;
+        
+        Fragment(long version, String html) {
+            this.version = version;
+            this.html = html;
+        }
+    }
+    
+    @Autowired
+    private ITemplateEngine templateEngine;
+    
+    @Autowired
+    private ServletContext servletContext;
+    
+    @Autowired
+    private CustomerDataVersion dataVersion;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Value("${crm.view.fragment-cache.enabled:true}")
+    private boolean enabled;
+    
+    private JakartaServletWebApplication application;
+    private final Map<String, Fragment> fragments = new ConcurrentHashMap<>();
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    
+    @PostConstruct
+    public void init() {
+        application = JakartaServletWebApplication.buildApplication(servletContext);
+    }
+    
+    /**
+     * 断片の HTML を取得（保持しているものが古ければ model で変数を取得して描画し直す）
+     *
+     * バージョンはモデルを取得する前に読む。描画中に変更がコミットされた場合、
+     * 描画した HTML は古いバージョンで保持されるため、次の要求で描画し直される。
+     */
+    public String get(String fragment, Supplier<Map<String, Object>> model,
+                      HttpServletRequest request, HttpServletResponse response) {
+        if (!enabled) {
+            return render(fragment, model.get(), request, response);
+        }
+        long version = dataVersion.current();
+        Fragment cached = fragments.get(fragment);
+        if (cached != null && cached.version == version) {
+            count(fragment, "hit");
+            return cached.html;
+        }
+        count(fragment, "miss");
+        String html = render(fragment, model.get(), request, response);
+        // 並行して描画した場合は新しいバージョンのものを残す
+        fragments.merge(fragment, new Fragment(version, html),
+            (current, rendered) -> rendered.version >= current.version ? rendered : current);
+        return html;
+    }
+    
+    private String render(String fragment, Map<String, Object> variables,
+                         HttpServletRequest request, HttpServletResponse response) {
+        WebContext context = new WebContext(application.buildExchange(request, response), request.getLocale(), variables);
+        return templateEngine.process(FRAGMENTS_TEMPLATE, Set.of(fragment), context);
+    }
+    
+    private void count(String fragment, String result) {
+        counters.computeIfAbsent(fragment + ":" + result, key -> Counter.builder("crm.view.fragments")
+                .description("描画済みの画面断片のキャッシュのヒット・ミス")
+                .tag("fragment", fragment)
+                .tag("result", result)
+                .register(meterRegistry))
+            .increment();
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.crm.dto;
+
+import java.util.List;
+
+/**
+ * 検索ボックスの入力候補（名前・会社名）
+ */
+public class AutocompleteResult {
+    
+    private final List<Suggestion> names;
+    private final List<Suggestion> companies;
+    
+    public AutocompleteResult(List<Suggestion> names, List<Suggestion> companies) {
+        this.names = names;
+        this.companies = companies;
+    }
+    
+    public List<Suggestion> getNames() {
+        return names;
+    }
+    
+    public List<Suggestion> getCompanies() {
+        return companies;
+    }
+}
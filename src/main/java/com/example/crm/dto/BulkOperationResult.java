@@ -0,0 +1,56 @@
+package com.example.crm.dto;
+
+/**
+ * 一括削除・一括更新の結果
+ */
+public class BulkOperationResult {
+    
+    private long targetCount;
+    private long affectedCount;
+    private int batchCount;
+    private long elapsedMillis;
+    
+    /**
+     * 対象として指定された（検索条件に一致した）件数を加算
+     */
+    public void addTargets(long count) {
+        targetCount += count;
+    }
+    
+    /**
+     * 1 バッチ（1 文）で変更した行数を加算
+     */
+    public void addBatch(long affected) {
+        affectedCount += affected;
+        batchCount++;
+    }
+    
+    /**
+     * 対象として指定された（検索条件に一致した）件数
+     */
+    public long getTargetCount() {
+        return targetCount;
+    }
+    
+    /**
+     * 実際に削除・更新した行数（存在しない ID は含まない）
+     */
+    public long getAffectedCount() {
+        return affectedCount;
+    }
+    
+    /**
+     * 実行した DELETE / UPDATE 文の数
+     */
+    public int getBatchCount() {
+        return batchCount;
+    }
+    
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+    
+    public void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.crm.dto;
+
+/**
+ * 会社別の顧客数
+ */
+public class CompanyCount {
+    
+    private final String company;
+    private final long count;
+    
+    public CompanyCount(String company, long count) {
+        this.company = company;
+        this.count = count;
+    }
+    
+    /**
+     * 会社名（未設定の顧客は null）
+     */
+    public String getCompany() {
+        return company;
+    }
+    
+    public long getCount() {
+        return count;
+    }
+}
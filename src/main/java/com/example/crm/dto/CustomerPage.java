@@ -0,0 +1,58 @@
+package com.example.crm.dto;
+
+import java.util.List;
+
+/**
+ * 顧客一覧の 1 ページ分（キーセットページング）
+ */
+public class CustomerPage {
+    
+    private final List<CustomerSummary> content;
+    private final long totalCount;
+    private final int pageSize;
+    private final String nextCursor;
+    private final String prevCursor;
+    
+    public CustomerPage(List<CustomerSummary> content, long totalCount, int pageSize,
+                        String nextCursor, String prevCursor) {
+        this.content = content;
+        this.totalCount = totalCount;
+        this.pageSize = pageSize;
+        this.nextCursor = nextCursor;
+        this.prevCursor = prevCursor;
+    }
+    
+    public List<CustomerSummary> getContent() {
+        return content;
+    }
+    
+    public long getTotalCount() {
+        return totalCount;
+    }
+    
+    public int getPageSize() {
+        return pageSize;
+    }
+    
+    /**
+     * 次ページのカーソル（次ページがない場合は null）
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+    
+    /**
+     * 前ページのカーソル（先頭ページの場合は null）
+     */
+    public String getPrevCursor() {
+        return prevCursor;
+    }
+    
+    public boolean isHasNext() {
+        return nextCursor != null;
+    }
+    
+    public boolean isHasPrev() {
+        return prevCursor != null;
+    }
+}
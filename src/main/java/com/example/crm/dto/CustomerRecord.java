@@ -0,0 +1,77 @@
+package com.example.crm.dto;
+
+import com.example.crm.entity.Customer;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/**
+ * 一括登録ファイル（CSV / JSON Lines）の 1 行分
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class CustomerRecord {
+    
+    private String name;
+    private String email;
+    private String phone;
+    private String company;
+    private String address;
+    private String notes;
+    
+    public String getName() {
+        return name;
+    }
+    
+    public void setName(String name) {
+        this.name = name;
+    }
+    
+    public String getEmail() {
+        return email;
+    }
+    
+    public void setEmail(String email) {
+        this.email = email;
+    }
+    
+    public String getPhone() {
+        return phone;
+    }
+    
+    public void setPhone(String phone) {
+        this.phone = phone;
+    }
+    
+    public String getCompany() {
+        return company;
+    }
+    
+    public void setCompany(String company) {
+        this.company = company;
+    }
+    
+    public String getAddress() {
+        return address;
+    }
+    
+    public void setAddress(String address) {
+        this.address = address;
+    }
+    
+    public String getNotes() {
+        return notes;
+    }
+    
+    public void setNotes(String notes) {
+        this.notes = notes;
+    }
+    
+    /**
+     * 新規登録用のエンティティに変換
+     */
+    public Customer toCustomer() {
+        Customer customer = new Customer(name, email, phone, company, address);
+        if (notes != null) {
+            customer.setNotes(notes);
+        }
+        return customer;
+    }
+}
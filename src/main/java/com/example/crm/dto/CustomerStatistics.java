@@ -0,0 +1,28 @@
+package com.example.crm.dto;
+
+import java.util.List;
+
+/**
+ * 統計情報（REST API の応答）
+ */
+public class CustomerStatistics {
+    
+    private final long totalCount;
+    private final List<CompanyCount> topCompanies;
+    
+    public CustomerStatistics(long totalCount, List<CompanyCount> topCompanies) {
+        this.totalCount = totalCount;
+        this.topCompanies = topCompanies;
+    }
+    
+    public long getTotalCount() {
+        return totalCount;
+    }
+    
+    /**
+     * 顧客数の多い順の会社
+     */
+    public List<CompanyCount> getTopCompanies() {
+        return topCompanies;
+    }
+}
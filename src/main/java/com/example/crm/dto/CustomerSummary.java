@@ -0,0 +1,57 @@
+package com.example.crm.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * 一覧・検索結果用の顧客情報（一覧に表示する列のみ）
+ *
+ * メモ・住所などを読み込まず、永続化コンテキストにも登録されない。
+ */
+public class CustomerSummary {
+    
+    /** JPQL のコンストラクタ式で使う SELECT 句 */
+    public static final String SELECT =
+        "SELECT new com.example.crm.dto.CustomerSummary(" +
+        "c.id, c.name, c.company, c.email, c.phone, c.registeredDate) ";
+    
+    private final Long id;
+    private final String name;
+    private final String company;
+    private final String email;
+    private final String phone;
+    private final LocalDateTime registeredDate;
+    
+    public CustomerSummary(Long id, String name, String company, String email,
+                           String phone, LocalDateTime registeredDate) {
+        this.id = id;
+        this.name = name;
+        this.company = company;
+        this.email = email;
+        this.phone = phone;
+        this.registeredDate = registeredDate;
+    }
+    
+    public Long getId() {
+        return id;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public String getCompany() {
+        return company;
+    }
+    
+    public String getEmail() {
+        return email;
+    }
+    
+    public String getPhone() {
+        return phone;
+    }
+    
+    public LocalDateTime getRegisteredDate() {
+        return registeredDate;
+    }
+}
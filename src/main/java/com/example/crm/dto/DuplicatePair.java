@@ -0,0 +1,46 @@
+package com.example.crm.dto;
+
+import java.util.List;
+
+/**
+ * 重複の可能性がある 2 顧客
+ */
+public class DuplicatePair {
+    
+    private final CustomerSummary first;
+    private final CustomerSummary second;
+    private final double score;
+    private final List<String> reasons;
+    
+    public DuplicatePair(CustomerSummary first, CustomerSummary second, double score, List<String> reasons) {
+        this.first = first;
+        this.second = second;
+        this.score = score;
+        this.reasons = reasons;
+    }
+    
+    /**
+     * ID の小さい方（先に登録された方）
+     */
+    public CustomerSummary getFirst() {
+        return first;
+    }
+    
+    public CustomerSummary getSecond() {
+        return second;
+    }
+    
+    /**
+     * 同一人物である可能性（0〜1）
+     */
+    public double getScore() {
+        return score;
+    }
+    
+    /**
+     * 一致・類似した項目
+     */
+    public List<String> getReasons() {
+        return reasons;
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.crm.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * 実行中の重複候補の検出の進み具合
+ */
+public class DuplicateProgress {
+    
+    private final LocalDateTime startedAt;
+    private final int pass;
+    private final int passes;
+    private final long loadedCustomers;
+    private final long totalCustomers;
+    private final long comparedBlocks;
+    private final long totalBlocks;
+    
+    public DuplicateProgress(LocalDateTime startedAt, int pass, int passes, long loadedCustomers,
+                             long totalCustomers, long comparedBlocks, long totalBlocks) {
+        this.startedAt = startedAt;
+        this.pass = pass;
+        this.passes = passes;
+        this.loadedCustomers = loadedCustomers;
+        this.totalCustomers = totalCustomers;
+        this.comparedBlocks = comparedBlocks;
+        this.totalBlocks = totalBlocks;
+    }
+    
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+    
+    /**
+     * 実行中のパス（1 から数える。開始直後は 0）
+     */
+    public int getPass() {
+        return pass;
+    }
+    
+    public int getPasses() {
+        return passes;
+    }
+    
+    /**
+     * 実行中のパスで読み込んだ顧客数
+     */
+    public long getLoadedCustomers() {
+        return loadedCustomers;
+    }
+    
+    public long getTotalCustomers() {
+        return totalCustomers;
+    }
+    
+    /**
+     * 実行中のパスで比較し終えたブロックの数（読み込み中は 0）
+     */
+    public long getComparedBlocks() {
+        return comparedBlocks;
+    }
+    
+    /**
+     * 実行中のパスで比較するブロックの数（読み込み中は 0）
+     */
+    public long getTotalBlocks() {
+        return totalBlocks;
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.crm.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 重複候補の検出結果（スコアの高い順）
+ */
+public class DuplicateReport {
+    
+    private final LocalDateTime generatedAt;
+    private final long customerCount;
+    private final int passes;
+    private final long blockCount;
+    private final long skippedBlockCount;
+    private final long comparisonCount;
+    private final long elapsedMillis;
+    private final List<DuplicatePair> pairs;
+    
+    public DuplicateReport(LocalDateTime generatedAt, long customerCount, int passes, long blockCount,
+                           long skippedBlockCount, long comparisonCount, long elapsedMillis, List<DuplicatePair> pairs) {
+        this.generatedAt = generatedAt;
+        this.customerCount = customerCount;
+        this.passes = passes;
+        this.blockCount = blockCount;
+        this.skippedBlockCount = skippedBlockCount;
+        this.comparisonCount = comparisonCount;
+        this.elapsedMillis = elapsedMillis;
+        this.pairs = pairs;
+    }
+    
+    public LocalDateTime getGeneratedAt() {
+        return generatedAt;
+    }
+    
+    /**
+     * 読み込んだ顧客数（1 パスあたり）
+     */
+    public long getCustomerCount() {
+        return customerCount;
+    }
+    
+    /**
+     * 全顧客を読み込んだ回数（ブロッキングキーのハッシュで分割した数）
+     */
+    public int getPasses() {
+        return passes;
+    }
+    
+    /**
+     * 比較した（2 顧客以上を含む）ブロックの数
+     */
+    public long getBlockCount() {
+        return blockCount;
+    }
+    
+    /**
+     * 大きすぎるため比較しなかったブロックの数
+     */
+    public long getSkippedBlockCount() {
+        return skippedBlockCount;
+    }
+    
+    /**
+     * 比較した顧客の組の数
+     */
+    public long getComparisonCount() {
+        return comparisonCount;
+    }
+    
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+    
+    public List<DuplicatePair> getPairs() {
+        return pairs;
+    }
+}
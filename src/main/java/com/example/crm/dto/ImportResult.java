@@ -0,0 +1,80 @@
+package com.example.crm.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 一括登録の結果
+ *
+ * 登録はバッチごとにコミットするため、途中のバッチで DB エラーが起きた場合は
+ * それより前のバッチは登録済みのまま中断する（stoppedAtLine 以降の行は登録されない）。
+ */
+public class ImportResult {
+    
+    /** 保持するエラーメッセージの最大件数 */
+    private static final int MAX_ERRORS = 20;
+    
+    private long importedCount;
+    private long rejectedCount;
+    private long elapsedMillis;
+    private long stoppedAtLine;
+    private String stopReason;
+    private final List<String> errors = new ArrayList<>();
+    
+    public void addImported(long count) {
+        importedCount += count;
+    }
+    
+    /**
+     * 取り込めなかった行を記録（メッセージは先頭 MAX_ERRORS 件のみ保持）
+     */
+    public void addRejected(long lineNumber, String message) {
+        rejectedCount++;
+        if (errors.size() < MAX_ERRORS) {
+            errors.add(lineNumber + "行目: " + message);
+        }
+    }
+    
+    /**
+     * lineNumber 行目から始まるバッチを登録できずに中断したことを記録
+     */
+    public void stop(long lineNumber, String reason) {
+        stoppedAtLine = lineNumber;
+        stopReason = reason;
+    }
+    
+    public long getImportedCount() {
+        return importedCount;
+    }
+    
+    public long getRejectedCount() {
+        return rejectedCount;
+    }
+    
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+    
+    public void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+    
+    public boolean isStopped() {
+        return stoppedAtLine > 0;
+    }
+    
+    /**
+     * 登録できなかった最初の行（中断していなければ 0）
+     */
+    public long getStoppedAtLine() {
+        return stoppedAtLine;
+    }
+    
+    public String getStopReason() {
+        return stopReason;
+    }
+    
+    public List<String> getErrors() {
+        return errors;
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.crm.dto;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Comparator;
+
+/**
+ * キーセットページングのカーソル（登録日時 + ID）
+ *
+ * URL では "登録日時_ID" 形式の文字列として受け渡す。
+ */
+public class PageCursor {
+    
+    private static final char SEPARATOR = '_';
+    
+    /** 一覧の表示順（登録日時の新しい順、同時刻は ID の大きい順） */
+    public static final Comparator<PageCursor> NEWEST_FIRST =
+        Comparator.comparing(PageCursor::getRegisteredDate, Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing(PageCursor::getId, Comparator.reverseOrder());
+    
+    private final LocalDateTime registeredDate;
+    private final Long id;
+    
+    public PageCursor(LocalDateTime registeredDate, Long id) {
+        this.registeredDate = registeredDate;
+        this.id = id;
+    }
+    
+    public LocalDateTime getRegisteredDate() {
+        return registeredDate;
+    }
+    
+    public Long getId() {
+        return id;
+    }
+    
+    /**
+     * URL パラメータ用の文字列に変換
+     */
+    public String encode() {
+        return registeredDate.toString() + SEPARATOR + id;
+    }
+    
+    /**
+     * URL パラメータから復元（不正な値の場合は null）
+     */
+    public static PageCursor decode(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        int pos = value.lastIndexOf(SEPARATOR);
+        if (pos <= 0 || pos == value.length() - 1) {
+            return null;
+        }
+        try {
+            LocalDateTime registeredDate = LocalDateTime.parse(value.substring(0, pos));
+            Long id = Long.valueOf(value.substring(pos + 1));
+            return new PageCursor(registeredDate, id);
+        } catch (DateTimeParseException | NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.crm.dto;
+
+/**
+ * 入力候補（値と、その値を持つ顧客数）
+ */
+public class Suggestion {
+    
+    private final String value;
+    private final long count;
+    
+    public Suggestion(String value, long count) {
+        this.value = value;
+        this.count = count;
+    }
+    
+    public String getValue() {
+        return value;
+    }
+    
+    public long getCount() {
+        return count;
+    }
+}
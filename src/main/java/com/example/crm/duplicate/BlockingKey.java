@@ -0,0 +1,46 @@
+package com.example.crm.duplicate;
+
+/**
+ * 重複候補を絞り込むブロッキングキー
+ *
+ * 同じキーを持つ顧客どうし（ブロック）だけを比較する。宣言順は絞り込みの強い順で、
+ * 複数のキーを共有する組は最初に共有するキーのブロックで 1 回だけ比較する。
+ */
+enum BlockingKey {
+    /** 正規化したメールアドレス */
+    EMAIL {
+        @Override
+        String of(DuplicateCandidate candidate) {
+            return candidate.email;
+        }
+    },
+    /** メールアドレスのローカル部（+ 以降と . を除く）とドメイン */
+    EMAIL_LOCAL_DOMAIN {
+        @Override
+        String of(DuplicateCandidate candidate) {
+            return candidate.canonicalEmail;
+        }
+    },
+    /** 電話番号の数字 */
+    PHONE {
+        @Override
+        String of(DuplicateCandidate candidate) {
+            return candidate.phone;
+        }
+    },
+    /** 正規化した名前と会社名 */
+    NAME_COMPANY {
+        @Override
+        String of(DuplicateCandidate candidate) {
+            if (candidate.name == null) {
+                return null;
+            }
+            return candidate.name + "|" + (candidate.company != null ? candidate.company : "");
+        }
+    };
+    
+    /**
+     * 顧客のキーの値（キーを持たなければ null）
+     */
+    abstract String of(DuplicateCandidate candidate);
+}
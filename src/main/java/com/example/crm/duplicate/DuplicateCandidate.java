@@ -0,0 +1,106 @@
+package com.example.crm.duplicate;
+
+import com.example.crm.dto.CustomerSummary;
+import com.example.crm.search.SearchKeys;
+
+import java.util.regex.Pattern;
+
+/**
+ * 重複判定用に正規化した 1 顧客分の値
+ *
+ * 名前・会社名・メールアドレスは SearchKeys で正規化し、名前・会社名は空白を除く。
+ * 電話番号は数字だけを残し、MIN_PHONE_DIGITS 桁未満なら未設定として扱う。
+ */
+final class DuplicateCandidate {
+    
+    /** 電話番号として比較する最小の桁数 */
+    static final int MIN_PHONE_DIGITS = 7;
+    
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    
+    final long id;
+    final String name;
+    final String company;
+    final String email;
+    /** メールアドレスのローカル部（+ 以降と . を除く）とドメイン */
+    final String canonicalEmail;
+    final String phone;
+    /** ブロッキングキーのハッシュ（BlockingKey の順、キーがなければ 0） */
+    final long[] keyHashes = new long[BlockingKey.values().length];
+    
+    private DuplicateCandidate(long id, String name, String company, String email, String phone) {
+        this.id = id;
+        this.name = name;
+        this.company = company;
+        this.email = email;
+        this.canonicalEmail = canonicalEmail(email);
+        this.phone = phone;
+        for (BlockingKey key : BlockingKey.values()) {
+            String value = key.of(this);
+            keyHashes[key.ordinal()] = value != null ? hash(key, value) : 0L;
+        }
+    }
+    
+    static DuplicateCandidate of(CustomerSummary customer) {
+        return new DuplicateCandidate(customer.getId(), compact(customer.getName()), compact(customer.getCompany()),
+            emptyToNull(SearchKeys.normalize(customer.getEmail())), phoneDigits(customer.getPhone()));
+    }
+    
+    /**
+     * 正規化して空白を除いた値（空なら null）
+     */
+    private static String compact(String value) {
+        String key = SearchKeys.normalize(value);
+        return key != null ? emptyToNull(WHITESPACE.matcher(key).replaceAll("")) : null;
+    }
+    
+    /**
+     * 数字だけを残した電話番号（全角数字も数える。桁数が足りなければ null）
+     */
+    private static String phoneDigits(String phone) {
+        String normalized = SearchKeys.normalize(phone);
+        if (normalized == null) {
+            return null;
+        }
+        StringBuilder digits = new StringBuilder(normalized.length());
+        for (int i = 0; i < normalized.length(); i++) {
+            char c = normalized.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits.append(c);
+            }
+        }
+        return digits.length() >= MIN_PHONE_DIGITS ? digits.toString() : null;
+    }
+    
+    private static String canonicalEmail(String email) {
+        if (email == null) {
+            return null;
+        }
+        int at = email.lastIndexOf('@');
+        if (at <= 0) {
+            return null;
+        }
+        String local = email.substring(0, at);
+        int plus = local.indexOf('+');
+        if (plus > 0) {
+            local = local.substring(0, plus);
+        }
+        return local.replace(".", "") + email.substring(at);
+    }
+    
+    private static String emptyToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+    
+    /**
+     * キーの種類と値の 64 ビットハッシュ（FNV-1a、0 は「キーなし」に使うため避ける）
+     */
+    private static long hash(BlockingKey key, String value) {
+        long h = 0xcbf29ce484222325L ^ key.ordinal();
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h != 0L ? h : 1L;
+    }
+}
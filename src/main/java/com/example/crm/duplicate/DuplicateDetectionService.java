@@ -0,0 +1,364 @@
+package com.example.crm.duplicate;
+
+import com.example.crm.dto.CustomerSummary;
+import com.example.crm.dto.DuplicatePair;
+import com.example.crm.dto.DuplicateProgress;
+import com.example.crm.dto.DuplicateReport;
+import com.example.crm.repository.CustomerRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 重複顧客の候補の検出
+ *
+ * 全顧客を ID 順に分割読み込みし、ブロッキングキー（BlockingKey）ごとに同じキーを持つ顧客をまとめ、
+ * ブロックの中だけで組を比較する（全組の比較はしない）。ブロックの比較は複数スレッドで並行に行い、
+ * スコアが min-score 以上の組のうち上位 report-size 組をレポートにする。
+ *
+ * メモリに載せるのは 1 パス分のブロックと上位の組だけ。キーの総数が keys-per-pass を超える場合は
+ * キーのハッシュで分割し、分割ごとに全顧客を読み直す（パス数ぶん読み込むが、保持するキーは分割した分だけ）。
+ * ほとんどのキーは 1 顧客しか持たないため、2 人目が現れるまではブロックを作らず顧客をそのまま保持する。
+ * max-block-size を超えるブロック（ダミーのメールアドレスなど）は比較しない。
+ *
+ * 全件を何度も読むため時間がかかる。検出は Spring のタスク実行スレッドで行い、
+ * 実行中は getProgress() で進み具合（パス・読み込んだ顧客数・比較したブロック数）を返す。
+ */
+@Service
+public class DuplicateDetectionService {
+    
+    private static final Logger log = LoggerFactory.getLogger(DuplicateDetectionService.class);
+    
+    private static final int LOAD_BATCH_SIZE = 1000;
+    
+    @Autowired
+    private CustomerRepository customerRepository;
+    
+    @Autowired
+    @Qualifier("applicationTaskExecutor")
+    private TaskExecutor taskExecutor;
+    
+    @Value("${crm.duplicates.keys-per-pass:2000000}")
+    private long keysPerPass;
+    
+    @Value("${crm.duplicates.max-block-size:500}")
+    private int maxBlockSize;
+    
+    @Value("${crm.duplicates.min-score:0.7}")
+    private double minScore;
+    
+    @Value("${crm.duplicates.report-size:100}")
+    private int reportSize;
+    
+    @Value("${crm.duplicates.threads:0}")
+    private int threads;
+    
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile DuplicateReport latestReport;
+    private volatile String lastError;
+    
+    // 実行中の進み具合
+    private volatile LocalDateTime startedAt;
+    private volatile int currentPass;
+    private volatile int passCount;
+    private volatile long totalCustomers;
+    private final AtomicLong loadedCustomers = new AtomicLong();
+    private final AtomicLong comparedBlocks = new AtomicLong();
+    private volatile long totalBlocks;
+    
+    /**
+     * 同じキーを持つ顧客（ID 順）。max-block-size を超えた時点で顧客を捨てて件数だけ数える
+     */
+    private final class Block {
+        final BlockingKey key;
+        List<DuplicateCandidate> members = new ArrayList<>(2);
+        int size;
+        
+        Block(BlockingKey key, DuplicateCandidate first) {
+            this.key = key;
+            add(first);
+        }
+        
+        void add(DuplicateCandidate candidate) {
+            size++;
+            if (members != null) {
+                members.add(candidate);
+                if (size > maxBlockSize) {
+                    members = null;
+                }
+            }
+        }
+        
+        boolean isOversized() {
+            return members == null;
+        }
+    }
+    
+    /**
+     * 重複候補の検出をバックグラウンドで開始（同時に 1 つだけ実行できる）
+     *
+     * 検出が終わると最新のレポートとして保持する。失敗した場合はそのメッセージを getLastError() で返す。
+     */
+    public void start() {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("重複候補の検出は実行中です");
+        }
+        lastError = null;
+        startedAt = LocalDateTime.now();
+        currentPass = 0;
+        passCount = 0;
+        totalCustomers = 0;
+        loadedCustomers.set(0);
+        comparedBlocks.set(0);
+        totalBlocks = 0;
+        try {
+            taskExecutor.execute(() -> {
+                try {
+                    latestReport = run();
+                } catch (RuntimeException e) {
+                    log.error("重複候補の検出に失敗しました", e);
+                    lastError = "重複候補の検出に失敗しました: " + e.getMessage();
+                } finally {
+                    running.set(false);
+                }
+            });
+        } catch (TaskRejectedException e) {
+            running.set(false);
+            throw new IllegalStateException("重複候補の検出を開始できませんでした", e);
+        }
+    }
+    
+    /**
+     * 最後に検出したレポート（未実行なら null）
+     */
+    public DuplicateReport getLatestReport() {
+        return latestReport;
+    }
+    
+    /**
+     * 最後の検出が失敗した場合のメッセージ（成功・実行中・未実行なら null）
+     */
+    public String getLastError() {
+        return lastError;
+    }
+    
+    public boolean isRunning() {
+        return running.get();
+    }
+    
+    /**
+     * 実行中の検出の進み具合（実行していなければ null）
+     */
+    public DuplicateProgress getProgress() {
+        if (!running.get()) {
+            return null;
+        }
+        return new DuplicateProgress(startedAt, currentPass, passCount, loadedCustomers.get(), totalCustomers,
+            comparedBlocks.get(), totalBlocks);
+    }
+    
+    private DuplicateReport run() {
+        long start = System.currentTimeMillis();
+        totalCustomers = customerRepository.count();
+        long keyCount = totalCustomers * BlockingKey.values().length;
+        int passes = (int) Math.max(1, (keyCount + keysPerPass - 1) / keysPerPass);
+        passCount = passes;
+        int threadCount = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        
+        TopMatches top = new TopMatches(reportSize);
+        long customerCount = 0;
+        long blockCount = 0;
+        long skippedBlockCount = 0;
+        LongAdder comparisons = new LongAdder();
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        try {
+            for (int pass = 0; pass < passes; pass++) {
+                currentPass = pass + 1;
+                loadedCustomers.set(0);
+                comparedBlocks.set(0);
+                totalBlocks = 0;
+                Map<Long, Object> blocks = new HashMap<>();
+                customerCount = loadBlocks(pass, passes, blocks);
+                
+                List<Block> targets = new ArrayList<>();
+                for (Object value : blocks.values()) {
+                    if (!(value instanceof Block)) {
+                        continue;
+                    }
+                    Block block = (Block) value;
+                    if (block.isOversized()) {
+                        skippedBlockCount++;
+                    } else {
+                        targets.add(block);
+                    }
+                }
+                blockCount += targets.size();
+                totalBlocks = targets.size();
+                top.addAll(compareAll(targets, blocks, pass, passes, executor, threadCount, comparisons));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        
+        List<DuplicatePair> pairs = toPairs(top.toList());
+        long elapsed = System.currentTimeMillis() - start;
+        log.info("重複候補を検出しました: 顧客 {}件, {}パス, ブロック {}件（比較せず {}件）, 比較 {}組, 候補 {}組, {}ms",
+            customerCount, passes, blockCount, skippedBlockCount, comparisons.sum(), pairs.size(), elapsed);
+        return new DuplicateReport(LocalDateTime.now(), customerCount, passes, blockCount, skippedBlockCount,
+            comparisons.sum(), elapsed, pairs);
+    }
+    
+    /**
+     * 全顧客を ID 順に読み込み、この分割（pass）に属するキーのブロックを作る（読み込んだ顧客数を返す）
+     *
+     * blocks の値は、キーを持つ顧客が 1 人なら DuplicateCandidate、2 人以上なら Block。
+     */
+    private long loadBlocks(int pass, int passes, Map<Long, Object> blocks) {
+        long count = 0;
+        long lastId = 0L;
+        List<CustomerSummary> batch;
+        do {
+            batch = customerRepository.findSummariesAfterId(lastId, PageRequest.of(0, LOAD_BATCH_SIZE));
+            for (CustomerSummary customer : batch) {
+                DuplicateCandidate candidate = DuplicateCandidate.of(customer);
+                for (BlockingKey key : BlockingKey.values()) {
+                    long hash = candidate.keyHashes[key.ordinal()];
+                    if (hash != 0L && partition(hash, passes) == pass) {
+                        blocks.merge(hash, candidate, (current, added) -> {
+                            Block block = current instanceof Block
+                                ? (Block) current : new Block(key, (DuplicateCandidate) current);
+                            block.add((DuplicateCandidate) added);
+                            return block;
+                        });
+                    }
+                }
+            }
+            count += batch.size();
+            loadedCustomers.addAndGet(batch.size());
+            if (!batch.isEmpty()) {
+                lastId = batch.get(batch.size() - 1).getId();
+            }
+        } while (batch.size() == LOAD_BATCH_SIZE);
+        return count;
+    }
+    
+    /**
+     * ブロックを threadCount 個のスレッドで分担して比較（各スレッドの上位をまとめて返す）
+     */
+    private TopMatches compareAll(List<Block> targets, Map<Long, Object> blocks, int pass, int passes,
+                                  ExecutorService executor, int threadCount, LongAdder comparisons) {
+        AtomicInteger next = new AtomicInteger();
+        List<Future<TopMatches>> futures = new ArrayList<>(threadCount);
+        for (int i = 0; i < threadCount; i++) {
+            futures.add(executor.submit(() -> {
+                TopMatches local = new TopMatches(reportSize);
+                long count = 0;
+                for (int index = next.getAndIncrement(); index < targets.size(); index = next.getAndIncrement()) {
+                    count += compareBlock(targets.get(index), blocks, pass, passes, local);
+                    comparedBlocks.incrementAndGet();
+                }
+                comparisons.add(count);
+                return local;
+            }));
+        }
+        
+        TopMatches merged = new TopMatches(reportSize);
+        for (Future<TopMatches> future : futures) {
+            try {
+                merged.addAll(future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("重複候補の検出が中断されました", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("重複候補の比較に失敗しました", e.getCause());
+            }
+        }
+        return merged;
+    }
+    
+    /**
+     * ブロック内の全組を比較（比較した組の数を返す）
+     */
+    private long compareBlock(Block block, Map<Long, Object> blocks, int pass, int passes, TopMatches top) {
+        List<DuplicateCandidate> members = block.members;
+        long count = 0;
+        for (int i = 0; i < members.size(); i++) {
+            DuplicateCandidate a = members.get(i);
+            for (int j = i + 1; j < members.size(); j++) {
+                DuplicateCandidate b = members.get(j);
+                if (comparedInEarlierBlock(a, b, block.key, blocks, pass, passes)) {
+                    continue;
+                }
+                count++;
+                double score = DuplicateScorer.score(a, b);
+                if (score >= minScore && top.accepts(score)) {
+                    top.offer(new TopMatches.Match(a.id, b.id, score, DuplicateScorer.reasons(a, b)));
+                }
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * 2 顧客が先の種類のキーも共有しており、そのブロックで比較される場合は true
+     *
+     * 別の分割に属するキーのブロックが比較されるかはこのパスでは分からないため、その場合は重ねて比較する
+     * （同じ組は TopMatches が 1 回だけ保持する）。
+     */
+    private boolean comparedInEarlierBlock(DuplicateCandidate a, DuplicateCandidate b, BlockingKey key,
+                                           Map<Long, Object> blocks, int pass, int passes) {
+        for (int k = 0; k < key.ordinal(); k++) {
+            long hash = a.keyHashes[k];
+            if (hash != 0L && hash == b.keyHashes[k] && partition(hash, passes) == pass
+                    && !((Block) blocks.get(hash)).isOversized()) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * 上位の組を表示用の顧客情報に置き換える（検出後に削除された顧客を含む組は除く）
+     */
+    private List<DuplicatePair> toPairs(List<TopMatches.Match> matches) {
+        Set<Long> ids = new LinkedHashSet<>();
+        for (TopMatches.Match match : matches) {
+            ids.add(match.first);
+            ids.add(match.second);
+        }
+        Map<Long, CustomerSummary> customers = new HashMap<>();
+        for (CustomerSummary customer : customerRepository.findSummariesInOrder(new ArrayList<>(ids))) {
+            customers.put(customer.getId(), customer);
+        }
+        List<DuplicatePair> pairs = new ArrayList<>(matches.size());
+        for (TopMatches.Match match : matches) {
+            CustomerSummary first = customers.get(match.first);
+            CustomerSummary second = customers.get(match.second);
+            if (first != null && second != null) {
+                pairs.add(new DuplicatePair(first, second, match.score, match.reasons));
+            }
+        }
+        return pairs;
+    }
+    
+    private static int partition(long hash, int passes) {
+        return (int) Math.floorMod(hash ^ (hash >>> 32), (long) passes);
+    }
+}
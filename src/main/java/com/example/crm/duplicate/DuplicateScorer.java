@@ -0,0 +1,144 @@
+package com.example.crm.duplicate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 2 顧客が同一人物である可能性のスコア（0〜1）
+ *
+ * 名前・メールアドレス・電話番号・会社名の類似度の加重平均。
+ * 電話番号・会社名はどちらかが未設定なら判断材料にしない（重みから除く）。
+ */
+final class DuplicateScorer {
+    
+    private static final double NAME_WEIGHT = 0.35;
+    private static final double EMAIL_WEIGHT = 0.30;
+    private static final double PHONE_WEIGHT = 0.20;
+    private static final double COMPANY_WEIGHT = 0.15;
+    
+    /** 類似とみなす名前・会社名の Jaro-Winkler 類似度 */
+    private static final double SIMILAR = 0.9;
+    
+    private DuplicateScorer() {
+    }
+    
+    static double score(DuplicateCandidate a, DuplicateCandidate b) {
+        double total = NAME_WEIGHT * similarity(a.name, b.name) + EMAIL_WEIGHT * emailSimilarity(a, b);
+        double weight = NAME_WEIGHT + EMAIL_WEIGHT;
+        if (a.phone != null && b.phone != null) {
+            total += PHONE_WEIGHT * (a.phone.equals(b.phone) ? 1.0 : 0.0);
+            weight += PHONE_WEIGHT;
+        }
+        if (a.company != null && b.company != null) {
+            total += COMPANY_WEIGHT * similarity(a.company, b.company);
+            weight += COMPANY_WEIGHT;
+        }
+        return total / weight;
+    }
+    
+    /**
+     * 一致・類似した項目（レポート表示用）
+     */
+    static List<String> reasons(DuplicateCandidate a, DuplicateCandidate b) {
+        List<String> reasons = new ArrayList<>(4);
+        double name = similarity(a.name, b.name);
+        if (name == 1.0) {
+            reasons.add("名前が一致");
+        } else if (name >= SIMILAR) {
+            reasons.add("名前が類似");
+        }
+        if (a.email != null && a.email.equals(b.email)) {
+            reasons.add("メールアドレスが一致");
+        } else if (a.canonicalEmail != null && a.canonicalEmail.equals(b.canonicalEmail)) {
+            reasons.add("メールアドレスがほぼ一致");
+        }
+        if (a.phone != null && a.phone.equals(b.phone)) {
+            reasons.add("電話番号が一致");
+        }
+        if (a.company != null && b.company != null) {
+            double company = similarity(a.company, b.company);
+            if (company == 1.0) {
+                reasons.add("会社名が一致");
+            } else if (company >= SIMILAR) {
+                reasons.add("会社名が類似");
+            }
+        }
+        return reasons;
+    }
+    
+    /**
+     * メールアドレスの類似度（一致 1、ローカル部の + 以降・. の違いだけなら 0.9、ローカル部だけ一致なら 0.5）
+     */
+    private static double emailSimilarity(DuplicateCandidate a, DuplicateCandidate b) {
+        if (a.email == null || b.email == null) {
+            return 0.0;
+        }
+        if (a.email.equals(b.email)) {
+            return 1.0;
+        }
+        if (a.canonicalEmail != null && a.canonicalEmail.equals(b.canonicalEmail)) {
+            return 0.9;
+        }
+        String localA = a.email.substring(0, Math.max(0, a.email.lastIndexOf('@')));
+        String localB = b.email.substring(0, Math.max(0, b.email.lastIndexOf('@')));
+        return !localA.isEmpty() && localA.equals(localB) ? 0.5 : 0.0;
+    }
+    
+    private static double similarity(String a, String b) {
+        if (a == null || b == null) {
+            return 0.0;
+        }
+        return jaroWinkler(a, b);
+    }
+    
+    /**
+     * Jaro-Winkler 類似度（先頭 4 文字までの一致を重視する）
+     */
+    static double jaroWinkler(String a, String b) {
+        if (a.equals(b)) {
+            return 1.0;
+        }
+        int lengthA = a.length();
+        int lengthB = b.length();
+        if (lengthA == 0 || lengthB == 0) {
+            return 0.0;
+        }
+        int range = Math.max(0, Math.max(lengthA, lengthB) / 2 - 1);
+        boolean[] matchedA = new boolean[lengthA];
+        boolean[] matchedB = new boolean[lengthB];
+        int matches = 0;
+        for (int i = 0; i < lengthA; i++) {
+            int end = Math.min(lengthB - 1, i + range);
+            for (int j = Math.max(0, i - range); j <= end; j++) {
+                if (!matchedB[j] && a.charAt(i) == b.charAt(j)) {
+                    matchedA[i] = true;
+                    matchedB[j] = true;
+                    matches++;
+                    break;
+                }
+            }
+        }
+        if (matches == 0) {
+            return 0.0;
+        }
+        int transpositions = 0;
+        for (int i = 0, j = 0; i < lengthA; i++) {
+            if (matchedA[i]) {
+                while (!matchedB[j]) {
+                    j++;
+                }
+                if (a.charAt(i) != b.charAt(j)) {
+                    transpositions++;
+                }
+                j++;
+            }
+        }
+        double m = matches;
+        double jaro = (m / lengthA + m / lengthB + (m - transpositions / 2.0) / m) / 3.0;
+        int prefix = 0;
+        while (prefix < Math.min(4, Math.min(lengthA, lengthB)) && a.charAt(prefix) == b.charAt(prefix)) {
+            prefix++;
+        }
+        return jaro + prefix * 0.1 * (1.0 - jaro);
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.crm.duplicate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * スコアの高い上位 k 組（同じ組は 1 回だけ保持する）
+ *
+ * 最小ヒープで保持するため、件数によらずメモリは k 組分で済む。スレッドセーフではない。
+ */
+final class TopMatches {
+    
+    /** スコアの低い順（同点は ID の大きい組を低くする） */
+    static final Comparator<Match> ASCENDING = Comparator.comparingDouble((Match m) -> m.score)
+        .thenComparing(Comparator.comparingLong((Match m) -> m.first).reversed())
+        .thenComparing(Comparator.comparingLong((Match m) -> m.second).reversed());
+    
+    /**
+     * スコアを付けた 2 顧客（first < second）
+     */
+    static final class Match {
+        final long first;
+        final long second;
+        final double score;
+        final List<String> reasons;
+        
+        Match(long first, long second, double score, List<String> reasons) {
+            this.first = first;
+            this.second = second;
+            this.score = score;
+            this.reasons = reasons;
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Match)) {
+                return false;
+            }
+            Match other = (Match) o;
+            return first == other.first && second == other.second;
+        }
+        
+        @Override
+        public int hashCode() {
+            return Long.hashCode(first) * 31 + Long.hashCode(second);
+        }
+    }
+    
+    private final int k;
+    private final PriorityQueue<Match> heap;
+    private final Set<Match> members = new HashSet<>();
+    
+    TopMatches(int k) {
+        this.k = k;
+        this.heap = new PriorityQueue<>(Math.max(1, k), ASCENDING);
+    }
+    
+    /**
+     * 上位 k 組に入るスコアか（入らない組は理由を求めずに捨てられる）
+     */
+    boolean accepts(double score) {
+        return k > 0 && (heap.size() < k || score >= heap.peek().score);
+    }
+    
+    void offer(Match match) {
+        if (k <= 0 || members.contains(match)) {
+            return;
+        }
+        if (heap.size() < k) {
+            heap.add(match);
+            members.add(match);
+        } else if (ASCENDING.compare(match, heap.peek()) > 0) {
+            members.remove(heap.poll());
+            heap.add(match);
+            members.add(match);
+        }
+    }
+    
+    void addAll(TopMatches other) {
+        for (Match match : other.heap) {
+            offer(match);
+        }
+    }
+    
+    /**
+     * スコアの高い順
+     */
+    List<Match> toList() {
+        List<Match> result = new ArrayList<>(heap);
+        result.sort(ASCENDING.reversed());
+        return result;
+    }
+}
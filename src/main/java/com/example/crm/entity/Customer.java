@@ -1,19 +1,43 @@
 package com.example.crm.entity;
 
+import com.example.crm.search.SearchKeys;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import java.time.LocalDateTime;
 
 /**
  * 顧客エンティティクラス
+ *
+ * 2次キャッシュ対象（リージョン設定は ehcache.xml）。
+ * 名前・会社名・メールアドレスは検索用の正規化キー（SearchKeys）も保存し、検索はキー列に対して行う。
  */
 @Entity
-@Table(name = "customers")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@Table(name = "customers", indexes = {
+    @Index(name = "idx_customers_registered_date_id", columnList = "registered_date, id"),
+    @Index(name = "idx_customers_name_key", columnList = "name_key"),
+    @Index(name = "idx_customers_company_key", columnList = "company_key"),
+    @Index(name = "idx_customers_email_key", columnList = "email_key")
+})
 public class Customer {
     
+    /** ID シーケンスの払い出し単位（pooled オプティマイザでまとめて採番する） */
+    public static final int ID_ALLOCATION_SIZE = 50;
+    
+    /** 検索キー列の長さ（NFKC 正規化で元の値より長くなる場合がある） */
+    public static final int SEARCH_KEY_LENGTH = 1000;
+    
+    /** メモ列の長さ */
+    public static final int NOTES_LENGTH = 1000;
+    
+    // IDENTITY では INSERT ごとに ID を取得するため JDBC バッチが効かない。シーケンスでまとめて採番する
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "customer_id")
+    @SequenceGenerator(name = "customer_id", sequenceName = "customers_seq", allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
     
     @NotBlank(message = "名前は必須です")
@@ -37,9 +61,24 @@ public class Customer {
     @Column(name = "last_contact_date")
     private LocalDateTime lastContactDate;
     
-    @Column(length = 1000)
+    @Column(length = NOTES_LENGTH)
     private String notes;
     
+    // 楽観的ロック用のバージョン（更新のたびに 1 増える。列追加前からある行は 0）
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private long version;
+    
+    // 検索用の正規化キー（@PrePersist / @PreUpdate で設定。列追加前からある行は起動時に埋める）
+    @Column(name = "name_key", length = SEARCH_KEY_LENGTH)
+    private String nameKey;
+    
+    @Column(name = "company_key", length = SEARCH_KEY_LENGTH)
+    private String companyKey;
+    
+    @Column(name = "email_key", length = SEARCH_KEY_LENGTH)
+    private String emailKey;
+    
     // デフォルトコンストラクタ
     public Customer() {
         this.registeredDate = LocalDateTime.now();
@@ -130,6 +169,14 @@ public class Customer {
         this.notes = notes;
     }
     
+    public long getVersion() {
+        return version;
+    }
+    
+    public void setVersion(long version) {
+        this.version = version;
+    }
+    
     @PrePersist
     protected void onCreate() {
         if (registeredDate == null) {
@@ -138,11 +185,27 @@ public class Customer {
         if (lastContactDate == null) {
             lastContactDate = LocalDateTime.now();
         }
+        updateSearchKeys();
     }
     
     @PreUpdate
     protected void onUpdate() {
         lastContactDate = LocalDateTime.now();
+        updateSearchKeys();
+    }
+    
+    private void updateSearchKeys() {
+        nameKey = searchKey(name);
+        companyKey = searchKey(company);
+        emailKey = searchKey(email);
+    }
+    
+    /**
+     * 検索キー列の値（列の長さを超える分は切り捨てる）
+     */
+    public static String searchKey(String value) {
+        String key = SearchKeys.normalize(value);
+        return key != null && key.length() > SEARCH_KEY_LENGTH ? key.substring(0, SEARCH_KEY_LENGTH) : key;
     }
 }
 
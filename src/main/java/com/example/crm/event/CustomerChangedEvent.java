@@ -0,0 +1,43 @@
+package com.example.crm.event;
+
+/**
+ * 顧客の登録・更新・削除イベント
+ *
+ * CustomerService が発行し、コミット後に検索インデックスなどの
+ * インメモリ構造が受け取って差分を反映する。
+ * 新規登録では before が、削除では after が null になる。
+ */
+public class CustomerChangedEvent {
+    
+    private final CustomerSnapshot before;
+    private final CustomerSnapshot after;
+    
+    public CustomerChangedEvent(CustomerSnapshot before, CustomerSnapshot after) {
+        this.before = before;
+        this.after = after;
+    }
+    
+    public static CustomerChangedEvent created(CustomerSnapshot after) {
+        return new CustomerChangedEvent(null, after);
+    }
+    
+    public static CustomerChangedEvent deleted(CustomerSnapshot before) {
+        return new CustomerChangedEvent(before, null);
+    }
+    
+    public CustomerSnapshot getBefore() {
+        return before;
+    }
+    
+    public CustomerSnapshot getAfter() {
+        return after;
+    }
+    
+    public Long getId() {
+        return after != null ? after.getId() : before.getId();
+    }
+    
+    public boolean isDeleted() {
+        return after == null;
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.crm.event;
+
+import com.example.crm.dto.CustomerSummary;
+import com.example.crm.entity.Customer;
+
+import java.time.LocalDateTime;
+
+/**
+ * 変更イベント用の顧客情報スナップショット（不変）
+ *
+ * エンティティはトランザクション終了後に変更されうるため、
+ * イベントにはこのコピーを載せる。
+ */
+public class CustomerSnapshot {
+    
+    private final Long id;
+    private final String name;
+    private final String email;
+    private final String phone;
+    private final String company;
+    private final LocalDateTime registeredDate;
+    
+    public CustomerSnapshot(Long id, String name, String email, String phone,
+                            String company, LocalDateTime registeredDate) {
+        this.id = id;
+        this.name = name;
+        this.email = email;
+        this.phone = phone;
+        this.company = company;
+        this.registeredDate = registeredDate;
+    }
+    
+    public static CustomerSnapshot of(Customer customer) {
+        return new CustomerSnapshot(customer.getId(), customer.getName(), customer.getEmail(),
+            customer.getPhone(), customer.getCompany(), customer.getRegisteredDate());
+    }
+    
+    public static CustomerSnapshot of(CustomerSummary customer) {
+        return new CustomerSnapshot(customer.getId(), customer.getName(), customer.getEmail(),
+            customer.getPhone(), customer.getCompany(), customer.getRegisteredDate());
+    }
+    
+    /**
+     * 会社名だけを変えたコピー（一括更新用）
+     */
+    public CustomerSnapshot withCompany(String newCompany) {
+        return new CustomerSnapshot(id, name, email, phone, newCompany, registeredDate);
+    }
+    
+    public Long getId() {
+        return id;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public String getEmail() {
+        return email;
+    }
+    
+    public String getPhone() {
+        return phone;
+    }
+    
+    public String getCompany() {
+        return company;
+    }
+    
+    public LocalDateTime getRegisteredDate() {
+        return registeredDate;
+    }
+}
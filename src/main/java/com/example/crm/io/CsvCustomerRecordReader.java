@@ -0,0 +1,152 @@
+package com.example.crm.io;
+
+import com.example.crm.dto.CustomerRecord;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * CSV 形式の一括登録ファイルのリーダー
+ *
+ * 1 行目はヘッダー（name, email, phone, company, address, notes、順不同）。
+ * ダブルクォートで囲んだ値にはカンマ・改行・"" を含められる。
+ */
+public class CsvCustomerRecordReader implements CustomerRecordReader {
+    
+    private final Reader reader;
+    private final Map<String, Integer> columns = new HashMap<>();
+    private long lineNumber;
+    private long currentLine = 1;
+    private int lookahead = -2;
+    
+    public CsvCustomerRecordReader(Reader reader) throws IOException {
+        this.reader = reader;
+        List<String> header = readRow();
+        if (header == null) {
+            throw new IllegalArgumentException("ヘッダー行がありません");
+        }
+        for (int i = 0; i < header.size(); i++) {
+            String column = header.get(i).trim().toLowerCase();
+            if (i == 0 && column.startsWith("\uFEFF")) {
+                column = column.substring(1);
+            }
+            columns.put(column, i);
+        }
+        if (!columns.containsKey("name") || !columns.containsKey("email")) {
+            throw new IllegalArgumentException("ヘッダーに name と email の列が必要です");
+        }
+    }
+    
+    @Override
+    public CustomerRecord next() throws IOException {
+        List<String> row;
+        do {
+            row = readRow();
+            if (row == null) {
+                return null;
+            }
+        } while (row.size() == 1 && row.get(0).isEmpty());
+        
+        CustomerRecord record = new CustomerRecord();
+        record.setName(value(row, "name"));
+        record.setEmail(value(row, "email"));
+        record.setPhone(value(row, "phone"));
+        record.setCompany(value(row, "company"));
+        record.setAddress(value(row, "address"));
+        record.setNotes(value(row, "notes"));
+        return record;
+    }
+    
+    @Override
+    public long getLineNumber() {
+        return lineNumber;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+    
+    private String value(List<String> row, String column) {
+        Integer index = columns.get(column);
+        if (index == null || index >= row.size()) {
+            return null;
+        }
+        String value = row.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+    
+    /**
+     * 1 レコード分の値を読み込む（終端では null）
+     */
+    private List<String> readRow() throws IOException {
+        int c = read();
+        if (c == -1) {
+            return null;
+        }
+        lineNumber = currentLine;
+        
+        List<String> row = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        while (true) {
+            if (quoted) {
+                if (c == -1) {
+                    throw new IllegalArgumentException("閉じられていないダブルクォートがあります");
+                }
+                if (c == '"') {
+                    int next = read();
+                    if (next == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        c = next;
+                        continue;
+                    }
+                } else {
+                    if (c == '\n') {
+                        currentLine++;
+                    }
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.length() == 0) {
+                quoted = true;
+            } else if (c == ',') {
+                row.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\r' || c == '\n' || c == -1) {
+                if (c == '\r') {
+                    int next = read();
+                    if (next != '\n') {
+                        unread(next);
+                    }
+                }
+                if (c != -1) {
+                    currentLine++;
+                }
+                row.add(field.toString());
+                return row;
+            } else {
+                field.append((char) c);
+            }
+            c = read();
+        }
+    }
+    
+    private int read() throws IOException {
+        if (lookahead != -2) {
+            int c = lookahead;
+            lookahead = -2;
+            return c;
+        }
+        return reader.read();
+    }
+    
+    private void unread(int c) {
+        lookahead = c;
+    }
+}
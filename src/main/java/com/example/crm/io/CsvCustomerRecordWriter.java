@@ -0,0 +1,63 @@
+package com.example.crm.io;
+
+import com.example.crm.entity.Customer;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalDateTime;
+
+/**
+ * CSV 形式のライター
+ *
+ * 列名は一括登録のヘッダーと共通のため、出力したファイルをそのまま取り込める。
+ */
+public class CsvCustomerRecordWriter implements CustomerRecordWriter {
+    
+    private static final String HEADER =
+        "id,name,email,phone,company,address,registered_date,last_contact_date,notes";
+    
+    private final Writer writer;
+    
+    public CsvCustomerRecordWriter(Writer writer) throws IOException {
+        this.writer = writer;
+        writer.write(HEADER);
+        writer.write("\r\n");
+    }
+    
+    @Override
+    public void write(Customer customer) throws IOException {
+        writer.write(String.valueOf(customer.getId()));
+        writeField(customer.getName());
+        writeField(customer.getEmail());
+        writeField(customer.getPhone());
+        writeField(customer.getCompany());
+        writeField(customer.getAddress());
+        writeField(format(customer.getRegisteredDate()));
+        writeField(format(customer.getLastContactDate()));
+        writeField(customer.getNotes());
+        writer.write("\r\n");
+    }
+    
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+    
+    private void writeField(String value) throws IOException {
+        writer.write(',');
+        if (value == null) {
+            return;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+    
+    private static String format(LocalDateTime dateTime) {
+        return dateTime != null ? dateTime.toString() : null;
+    }
+}
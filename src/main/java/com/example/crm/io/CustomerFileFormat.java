@@ -0,0 +1,39 @@
+package com.example.crm.io;
+
+/**
+ * 一括登録・エクスポートのファイル形式
+ */
+public enum CustomerFileFormat {
+    CSV("text/csv", "csv"),
+    JSON_LINES("application/x-ndjson", "ndjson");
+    
+    private final String contentType;
+    private final String extension;
+    
+    CustomerFileFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+    
+    public String getContentType() {
+        return contentType;
+    }
+    
+    public String getExtension() {
+        return extension;
+    }
+    
+    /**
+     * 形式の指定（csv / jsonl / ndjson）またはファイル名の拡張子から判定
+     */
+    public static CustomerFileFormat detect(String format, String filename) {
+        String value = format != null && !format.isBlank() ? format : filename;
+        if (value != null) {
+            String lower = value.toLowerCase();
+            if (lower.endsWith("jsonl") || lower.endsWith("ndjson") || lower.endsWith("json")) {
+                return JSON_LINES;
+            }
+        }
+        return CSV;
+    }
+}
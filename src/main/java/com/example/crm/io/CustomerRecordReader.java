@@ -0,0 +1,26 @@
+package com.example.crm.io;
+
+import com.example.crm.dto.CustomerRecord;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * 一括登録ファイルを 1 行ずつ読み込むリーダー
+ *
+ * ファイル全体をメモリに載せず、呼び出しごとに次の 1 件だけを解析する。
+ */
+public interface CustomerRecordReader extends Closeable {
+    
+    /**
+     * 次の 1 件を読み込む（終端では null）
+     *
+     * @throws IllegalArgumentException その行の形式が不正な場合（次の呼び出しでは後続の行を読む）
+     */
+    CustomerRecord next() throws IOException;
+    
+    /**
+     * 直前に読み込んだ行の行番号（1 始まり）
+     */
+    long getLineNumber();
+}
@@ -0,0 +1,16 @@
+package com.example.crm.io;
+
+import com.example.crm.entity.Customer;
+
+import java.io.Flushable;
+import java.io.IOException;
+
+/**
+ * 顧客を 1 件ずつ出力するライター
+ *
+ * 出力先に直接書き出し、呼び出し側で全件を保持しない。
+ */
+public interface CustomerRecordWriter extends Flushable {
+    
+    void write(Customer customer) throws IOException;
+}
@@ -0,0 +1,51 @@
+package com.example.crm.io;
+
+import com.example.crm.dto.CustomerRecord;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+
+/**
+ * JSON Lines（1 行 1 オブジェクト）形式の一括登録ファイルのリーダー
+ */
+public class JsonLinesCustomerRecordReader implements CustomerRecordReader {
+    
+    private final BufferedReader reader;
+    private final ObjectReader objectReader;
+    private long lineNumber;
+    
+    public JsonLinesCustomerRecordReader(BufferedReader reader, ObjectReader objectReader) {
+        this.reader = reader;
+        this.objectReader = objectReader.forType(CustomerRecord.class);
+    }
+    
+    @Override
+    public CustomerRecord next() throws IOException {
+        String line;
+        do {
+            line = reader.readLine();
+            if (line == null) {
+                return null;
+            }
+            lineNumber++;
+        } while (line.isBlank());
+        
+        try {
+            return objectReader.readValue(line);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("JSON の形式が不正です: " + e.getOriginalMessage());
+        }
+    }
+    
+    @Override
+    public long getLineNumber() {
+        return lineNumber;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.crm.io;
+
+import com.example.crm.entity.Customer;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalDateTime;
+
+/**
+ * NDJSON（1 行 1 オブジェクト）形式のライター
+ */
+public class JsonLinesCustomerRecordWriter implements CustomerRecordWriter {
+    
+    private final JsonGenerator generator;
+    
+    public JsonLinesCustomerRecordWriter(Writer writer, JsonFactory jsonFactory) throws IOException {
+        this.generator = jsonFactory.createGenerator(writer);
+        // 1 件ごとに改行で区切る（既定の区切りは空白）
+        generator.setRootValueSeparator(null);
+    }
+    
+    @Override
+    public void write(Customer customer) throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("id", customer.getId());
+        generator.writeStringField("name", customer.getName());
+        generator.writeStringField("email", customer.getEmail());
+        generator.writeStringField("phone", customer.getPhone());
+        generator.writeStringField("company", customer.getCompany());
+        generator.writeStringField("address", customer.getAddress());
+        generator.writeStringField("registeredDate", format(customer.getRegisteredDate()));
+        generator.writeStringField("lastContactDate", format(customer.getLastContactDate()));
+        generator.writeStringField("notes", customer.getNotes());
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+    
+    @Override
+    public void flush() throws IOException {
+        generator.flush();
+    }
+    
+    private static String format(LocalDateTime dateTime) {
+        return dateTime != null ? dateTime.toString() : null;
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.crm.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 顧客検索の結果件数の分布（crm.customer.search.results、operation タグ付き）
+ */
+@Component
+public class CustomerMetrics {
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    private final Map<String, DistributionSummary> resultSizes = new ConcurrentHashMap<>();
+    
+    /**
+     * 検索結果の件数を記録
+     */
+    public void recordResultSize(String operation, long size) {
+        resultSizes.computeIfAbsent(operation, op -> DistributionSummary.builder("crm.customer.search.results")
+                .description("検索結果の件数")
+                .baseUnit("customers")
+                .tag("operation", op)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry))
+            .record(size);
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.crm.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * コントローラーのエンドポイントごとに SQL 発行数・エンティティ読み込み数を記録
+ *
+ * crm.endpoint.sql.statements / crm.endpoint.entity.loads に、
+ * URI パターン（/customers/{id} など）と HTTP メソッドをタグとして付ける。
+ */
+@Component
+public class EndpointQueryMetricsInterceptor implements HandlerInterceptor {
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        RequestQueryStatistics.begin();
+        return true;
+    }
+    
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        RequestQueryStatistics statistics = RequestQueryStatistics.end();
+        if (statistics == null) {
+            return;
+        }
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+        String method = request.getMethod();
+        
+        DistributionSummary.builder("crm.endpoint.sql.statements")
+            .description("1 リクエストあたりの SQL 発行数")
+            .tags("uri", uri, "method", method)
+            .publishPercentiles(0.5, 0.95, 0.99)
+            .register(meterRegistry)
+            .record(statistics.getStatements());
+        DistributionSummary.builder("crm.endpoint.entity.loads")
+            .description("1 リクエストあたりのエンティティ読み込み数")
+            .tags("uri", uri, "method", method)
+            .publishPercentiles(0.5, 0.95, 0.99)
+            .register(meterRegistry)
+            .record(statistics.getEntityLoads());
+    }
+}
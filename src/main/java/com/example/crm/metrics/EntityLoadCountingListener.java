@@ -0,0 +1,15 @@
+package com.example.crm.metrics;
+
+import org.hibernate.event.spi.PostLoadEvent;
+import org.hibernate.event.spi.PostLoadEventListener;
+
+/**
+ * エンティティの読み込み（2次キャッシュからの組み立てを含む）をリクエスト単位で数える
+ */
+public class EntityLoadCountingListener implements PostLoadEventListener {
+    
+    @Override
+    public void onPostLoad(PostLoadEvent event) {
+        RequestQueryStatistics.entityLoaded();
+    }
+}
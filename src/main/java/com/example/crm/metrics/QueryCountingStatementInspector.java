@@ -0,0 +1,18 @@
+package com.example.crm.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Hibernate が発行する SQL をリクエスト単位で数える
+ *
+ * hibernate.session_factory.statement_inspector にクラス名で指定する。
+ * クエリキャッシュや 2次キャッシュで DB に問い合わせなかった場合は数えない。
+ */
+public class QueryCountingStatementInspector implements StatementInspector {
+    
+    @Override
+    public String inspect(String sql) {
+        RequestQueryStatistics.statementPrepared();
+        return sql;
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.crm.metrics;
+
+/**
+ * リクエスト単位の SQL 発行数・エンティティ読み込み数
+ *
+ * リクエストを処理するスレッドに紐づけて数える。begin() から end() までの間だけ有効で、
+ * それ以外のスレッド（スケジューラー・起動処理など）での発行は数えない。
+ */
+public final class RequestQueryStatistics {
+    
+    private static final ThreadLocal<RequestQueryStatistics> CURRENT = new ThreadLocal<>();
+    
+    private int statements;
+    private int entityLoads;
+    
+    private RequestQueryStatistics() {
+    }
+    
+    /**
+     * 現在のスレッドで集計を開始
+     */
+    public static void begin() {
+        CURRENT.set(new RequestQueryStatistics());
+    }
+    
+    /**
+     * 現在のスレッドの集計を終了して結果を返す（開始していなければ null）
+     */
+    public static RequestQueryStatistics end() {
+        RequestQueryStatistics statistics = CURRENT.get();
+        CURRENT.remove();
+        return statistics;
+    }
+    
+    static void statementPrepared() {
+        RequestQueryStatistics statistics = CURRENT.get();
+        if (statistics != null) {
+            statistics.statements++;
+        }
+    }
+    
+    static void entityLoaded() {
+        RequestQueryStatistics statistics = CURRENT.get();
+        if (statistics != null) {
+            statistics.entityLoads++;
+        }
+    }
+    
+    public int getStatements() {
+        return statements;
+    }
+    
+    public int getEntityLoads() {
+        return entityLoads;
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.crm.repository;
+
+/**
+ * 顧客検索の一致方法
+ */
+public enum CustomerMatchMode {
+    /** 部分一致（LIKE '%kw%'） */
+    CONTAINS,
+    /** 前方一致（LIKE 'kw%'、検索キー列のインデックスを範囲検索できる） */
+    PREFIX;
+    
+    /**
+     * リクエストパラメータ（contains / prefix）から変換
+     */
+    public static CustomerMatchMode fromParam(String param) {
+        return "prefix".equals(param) ? PREFIX : CONTAINS;
+    }
+}
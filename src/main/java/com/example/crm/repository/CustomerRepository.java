@@ -1,38 +1,96 @@
 package com.example.crm.repository;
 
+import com.example.crm.dto.CustomerSummary;
 import com.example.crm.entity.Customer;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * 顧客リポジトリインターフェース
  */
 @Repository
-public interface CustomerRepository extends JpaRepository<Customer, Long> {
+public interface CustomerRepository extends JpaRepository<Customer, Long>, CustomerRepositoryCustom {
+    
+    // 全件の一覧
+    @Query(CustomerSummary.SELECT + "FROM Customer c")
+    List<CustomerSummary> findAllSummaries();
+    
+    // 以下の検索はキーワードに SearchKeys.likeKey で正規化・エスケープした値を渡す
     
     // 名前で検索（部分一致）
-    List<Customer> findByNameContainingIgnoreCase(String name);
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    @Query(CustomerSummary.SELECT + "FROM Customer c WHERE c.nameKey LIKE CONCAT('%', :name, '%') ESCAPE '\\'")
+    List<CustomerSummary> findByNameContainingIgnoreCase(@Param("name") String name);
     
     // 会社名で検索（部分一致）
-    List<Customer> findByCompanyContainingIgnoreCase(String company);
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    @Query(CustomerSummary.SELECT + "FROM Customer c WHERE c.companyKey LIKE CONCAT('%', :company, '%') ESCAPE '\\'")
+    List<CustomerSummary> findByCompanyContainingIgnoreCase(@Param("company") String company);
     
     // メールアドレスで検索（部分一致）
-    List<Customer> findByEmailContainingIgnoreCase(String email);
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    @Query(CustomerSummary.SELECT + "FROM Customer c WHERE c.emailKey LIKE CONCAT('%', :email, '%') ESCAPE '\\'")
+    List<CustomerSummary> findByEmailContainingIgnoreCase(@Param("email") String email);
+    
+    // 全項目検索（電話番号は正規化キーを持たないため元の値と照合）
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    @Query(CustomerSummary.SELECT + "FROM Customer c WHERE " +
+           "c.nameKey LIKE CONCAT('%', :keyword, '%') ESCAPE '\\' OR " +
+           "c.companyKey LIKE CONCAT('%', :keyword, '%') ESCAPE '\\' OR " +
+           "c.emailKey LIKE CONCAT('%', :keyword, '%') ESCAPE '\\' OR " +
+           "c.phone LIKE CONCAT('%', :keyword, '%') ESCAPE '\\'")
+    List<CustomerSummary> searchAll(@Param("keyword") String keyword);
+    
+    // ID順の分割読み込み（インデックス構築用）
+    @Query(CustomerSummary.SELECT + "FROM Customer c WHERE c.id > :id ORDER BY c.id")
+    List<CustomerSummary> findSummariesAfterId(@Param("id") Long id, Pageable pageable);
+    
+    // 全件を ID 順に逐次取得（エクスポート用、2次キャッシュには載せない）
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHE_MODE, value = "IGNORE")
+    })
+    @Query("SELECT c FROM Customer c ORDER BY c.id")
+    Stream<Customer> streamAllBy();
     
-    // 全項目検索
-    @Query("SELECT c FROM Customer c WHERE " +
-           "LOWER(c.name) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
-           "LOWER(c.company) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
-           "LOWER(c.email) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
-           "c.phone LIKE CONCAT('%', :keyword, '%')")
-    List<Customer> searchAll(@Param("keyword") String keyword);
+    // 名前でグループ化して件数を取得（入力候補の構築用）
+    @Query("SELECT c.name, COUNT(c) FROM Customer c GROUP BY c.name")
+    List<Object[]> countByName();
     
     // 会社名でグループ化して件数を取得
     @Query("SELECT c.company, COUNT(c) FROM Customer c GROUP BY c.company ORDER BY COUNT(c) DESC")
     List<Object[]> countByCompany();
+    
+    // 以下の一括操作はエンティティを読み込まずに 1 文で実行し、変更した行数を返す
+    // （Hibernate が2次キャッシュの顧客とクエリキャッシュを無効にする）
+    
+    // ID リストの顧客を削除
+    @Modifying
+    @Query("DELETE FROM Customer c WHERE c.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+    
+    // ID リストの顧客の会社名を変更（検索キーも更新し、バージョンを進める）
+    @Modifying
+    @Query("UPDATE Customer c SET c.company = :company, c.companyKey = :companyKey, c.version = c.version + 1 " +
+           "WHERE c.id IN :ids")
+    int updateCompanyByIdIn(@Param("ids") Collection<Long> ids, @Param("company") String company,
+                            @Param("companyKey") String companyKey);
+    
+    // ID リストの顧客のメモを変更（バージョンを進める）
+    @Modifying
+    @Query("UPDATE Customer c SET c.notes = :notes, c.version = c.version + 1 WHERE c.id IN :ids")
+    int updateNotesByIdIn(@Param("ids") Collection<Long> ids, @Param("notes") String notes);
 }
 
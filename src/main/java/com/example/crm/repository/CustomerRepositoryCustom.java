@@ -0,0 +1,44 @@
+package com.example.crm.repository;
+
+import com.example.crm.dto.CustomerSummary;
+import com.example.crm.dto.PageCursor;
+
+import java.util.List;
+
+/**
+ * 顧客リポジトリのカスタム実装（キーセットページング）
+ *
+ * keyword は正規化前の入力値を渡す（検索キー列と同じく SearchKeys で正規化して照合する）。
+ */
+public interface CustomerRepositoryCustom {
+    
+    /**
+     * 登録日時の新しい順に、カーソルの前後から最大 limit 件を取得
+     *
+     * backward = false の場合はカーソルより後ろ（古い側）を新しい順で、
+     * backward = true の場合はカーソルより前（新しい側）を古い順で返す。
+     * keyword が空の場合は全件が対象。
+     */
+    List<CustomerSummary> findPage(CustomerSearchType searchType, CustomerMatchMode matchMode, String keyword,
+                                   PageCursor cursor, boolean backward, int limit);
+    
+    /**
+     * findPage（backward = false）と同じ順序・条件で最大 limit 件を取得（ストリーミング用）
+     *
+     * 結果をクエリキャッシュに載せない。
+     */
+    List<CustomerSummary> findChunk(CustomerSearchType searchType, CustomerMatchMode matchMode, String keyword,
+                                    PageCursor cursor, int limit);
+    
+    /**
+     * 検索条件に一致する件数を取得
+     */
+    long countMatching(CustomerSearchType searchType, CustomerMatchMode matchMode, String keyword);
+    
+    /**
+     * ID リストの順序どおりに一覧用の顧客情報を取得（存在しない ID は除く）
+     *
+     * ID が多い場合は crm.bulk.batch-size 件ずつの文に分けて読み出す。
+     */
+    List<CustomerSummary> findSummariesInOrder(List<Long> ids);
+}
@@ -0,0 +1,148 @@
+package com.example.crm.repository;
+
+import com.example.crm.dto.CustomerSummary;
+import com.example.crm.dto.PageCursor;
+import com.example.crm.search.SearchKeys;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 顧客リポジトリのカスタム実装
+ *
+ * (registeredDate, id) をキーにしたシーク方式のため、
+ * OFFSET と違いページ位置に関係なく一定のコストで取得できる。
+ * 検索条件は正規化済みの検索キー列（name_key など）に対する LIKE で、
+ * 前方一致（CustomerMatchMode.PREFIX）ならキー列のインデックスを範囲検索できる。
+ */
+public class CustomerRepositoryImpl implements CustomerRepositoryCustom {
+    
+    private static final String ESCAPE = " ESCAPE '" + SearchKeys.LIKE_ESCAPE + "'";
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    /** findSummariesInOrder で 1 文の IN に渡す ID の件数（一括削除・一括更新と同じ） */
+    @Value("${crm.bulk.batch-size:500}")
+    private int idsPerQuery;
+    
+    @Override
+    public List<CustomerSummary> findPage(CustomerSearchType searchType, CustomerMatchMode matchMode, String keyword,
+                                          PageCursor cursor, boolean backward, int limit) {
+        return pageQuery(searchType, matchMode, keyword, cursor, backward, limit)
+            .setHint(HibernateHints.HINT_CACHEABLE, true)
+            .getResultList();
+    }
+    
+    @Override
+    public List<CustomerSummary> findChunk(CustomerSearchType searchType, CustomerMatchMode matchMode, String keyword,
+                                           PageCursor cursor, int limit) {
+        return pageQuery(searchType, matchMode, keyword, cursor, false, limit).getResultList();
+    }
+    
+    private TypedQuery<CustomerSummary> pageQuery(CustomerSearchType searchType, CustomerMatchMode matchMode,
+                                                  String keyword, PageCursor cursor, boolean backward, int limit) {
+        StringBuilder jpql = new StringBuilder(CustomerSummary.SELECT + "FROM Customer c WHERE 1 = 1");
+        appendSearchCondition(jpql, searchType, keyword);
+        
+        if (cursor != null) {
+            String op = backward ? ">" : "<";
+            jpql.append(" AND (c.registeredDate ").append(op).append(" :cursorDate")
+                .append(" OR (c.registeredDate = :cursorDate AND c.id ").append(op).append(" :cursorId))");
+        }
+        
+        String direction = backward ? "ASC" : "DESC";
+        jpql.append(" ORDER BY c.registeredDate ").append(direction)
+            .append(", c.id ").append(direction);
+        
+        TypedQuery<CustomerSummary> query = entityManager.createQuery(jpql.toString(), CustomerSummary.class);
+        bindSearchParameters(query, matchMode, keyword);
+        if (cursor != null) {
+            query.setParameter("cursorDate", cursor.getRegisteredDate());
+            query.setParameter("cursorId", cursor.getId());
+        }
+        return query.setMaxResults(limit);
+    }
+    
+    @Override
+    public long countMatching(CustomerSearchType searchType, CustomerMatchMode matchMode, String keyword) {
+        StringBuilder jpql = new StringBuilder("SELECT COUNT(c) FROM Customer c WHERE 1 = 1");
+        appendSearchCondition(jpql, searchType, keyword);
+        
+        TypedQuery<Long> query = entityManager.createQuery(jpql.toString(), Long.class);
+        bindSearchParameters(query, matchMode, keyword);
+        return query.setHint(HibernateHints.HINT_CACHEABLE, true).getSingleResult();
+    }
+    
+    @Override
+    public List<CustomerSummary> findSummariesInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        // ヒットが多くてもバインド変数が数十万個の文にならないよう、idsPerQuery 件ずつに分けて読み出す
+        // （端数の件数ごとに実行計画が増えないよう、IN のバインド変数は Hibernate が 2 のべき乗に揃える）
+        Map<Long, CustomerSummary> byId = new HashMap<>();
+        for (int from = 0; from < ids.size(); from += idsPerQuery) {
+            List<Long> chunk = ids.subList(from, Math.min(from + idsPerQuery, ids.size()));
+            List<CustomerSummary> rows = entityManager
+                .createQuery(CustomerSummary.SELECT + "FROM Customer c WHERE c.id IN :ids", CustomerSummary.class)
+                .setParameter("ids", chunk)
+                .getResultList();
+            for (CustomerSummary row : rows) {
+                byId.put(row.getId(), row);
+            }
+        }
+        List<CustomerSummary> result = new ArrayList<>(byId.size());
+        for (Long id : ids) {
+            CustomerSummary row = byId.get(id);
+            if (row != null) {
+                result.add(row);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * 検索条件を追加（部分一致の場合は searchAll / findBy...ContainingIgnoreCase と同じ条件）
+     */
+    private void appendSearchCondition(StringBuilder jpql, CustomerSearchType searchType, String keyword) {
+        if (isBlank(keyword)) {
+            return;
+        }
+        switch (searchType) {
+            case NAME:
+                jpql.append(" AND c.nameKey LIKE :pattern" + ESCAPE);
+                break;
+            case COMPANY:
+                jpql.append(" AND c.companyKey LIKE :pattern" + ESCAPE);
+                break;
+            case EMAIL:
+                jpql.append(" AND c.emailKey LIKE :pattern" + ESCAPE);
+                break;
+            default:
+                jpql.append(" AND (c.nameKey LIKE :pattern" + ESCAPE + " OR ")
+                    .append("c.companyKey LIKE :pattern" + ESCAPE + " OR ")
+                    .append("c.emailKey LIKE :pattern" + ESCAPE + " OR ")
+                    .append("c.phone LIKE :pattern" + ESCAPE + ")");
+        }
+    }
+    
+    private void bindSearchParameters(TypedQuery<?> query, CustomerMatchMode matchMode, String keyword) {
+        if (isBlank(keyword)) {
+            return;
+        }
+        String prefix = matchMode == CustomerMatchMode.PREFIX ? "" : "%";
+        query.setParameter("pattern", prefix + SearchKeys.likeKey(keyword) + "%");
+    }
+    
+    private static boolean isBlank(String keyword) {
+        return keyword == null || keyword.trim().isEmpty();
+    }
+}
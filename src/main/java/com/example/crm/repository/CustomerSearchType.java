@@ -0,0 +1,30 @@
+package com.example.crm.repository;
+
+/**
+ * 顧客検索の対象項目
+ */
+public enum CustomerSearchType {
+    ALL,
+    NAME,
+    COMPANY,
+    EMAIL;
+    
+    /**
+     * リクエストパラメータ（all / name / company / email）から変換
+     */
+    public static CustomerSearchType fromParam(String param) {
+        if (param == null) {
+            return ALL;
+        }
+        switch (param) {
+            case "name":
+                return NAME;
+            case "company":
+                return COMPANY;
+            case "email":
+                return EMAIL;
+            default:
+                return ALL;
+        }
+    }
+}
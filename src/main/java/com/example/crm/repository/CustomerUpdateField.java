@@ -0,0 +1,22 @@
+package com.example.crm.repository;
+
+/**
+ * 一括更新できる項目
+ */
+public enum CustomerUpdateField {
+    COMPANY,
+    NOTES;
+    
+    /**
+     * リクエストパラメータ（company / notes）から変換
+     */
+    public static CustomerUpdateField fromParam(String param) {
+        if ("company".equals(param)) {
+            return COMPANY;
+        }
+        if ("notes".equals(param)) {
+            return NOTES;
+        }
+        throw new IllegalArgumentException("一括更新できない項目です: " + param);
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.crm.search;
+
+import com.example.crm.dto.AutocompleteResult;
+import com.example.crm.event.CustomerChangedEvent;
+import com.example.crm.event.CustomerSnapshot;
+import com.example.crm.repository.CustomerRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Objects;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 検索ボックスの入力候補（名前・会社名の前方一致）
+ *
+ * 名前・会社名ごとに PrefixSuggester を持ち、その値を持つ顧客数の多い順に候補を返す。
+ * 起動時に countByName() / countByCompany() で 1 回だけ集計して構築し、
+ * 以降は CustomerChangedEvent（saveCustomer / deleteCustomer・一括登録）で差分更新する。
+ */
+@Component
+public class CustomerAutocompleteIndex {
+    
+    private static final Logger log = LoggerFactory.getLogger(CustomerAutocompleteIndex.class);
+    
+    /** 取得できる候補の最大件数 */
+    public static final int MAX_SUGGESTIONS = 10;
+    
+    @Autowired
+    private CustomerRepository customerRepository;
+    
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final PrefixSuggester names = new PrefixSuggester(MAX_SUGGESTIONS);
+    private final PrefixSuggester companies = new PrefixSuggester(MAX_SUGGESTIONS);
+    
+    /**
+     * 起動時に DB から名前・会社名ごとの顧客数を読み込む
+     */
+    @PostConstruct
+    public void build() {
+        long start = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            for (Object[] row : customerRepository.countByName()) {
+                names.add((String) row[0], ((Long) row[1]).intValue());
+            }
+            for (Object[] row : customerRepository.countByCompany()) {
+                companies.add((String) row[0], ((Long) row[1]).intValue());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("入力候補を構築しました: 名前 {}件, 会社名 {}件, {}ms",
+            names.size(), companies.size(), System.currentTimeMillis() - start);
+    }
+    
+    /**
+     * コミット済みの登録・更新・削除を反映
+     */
+    @TransactionalEventListener
+    public void onCustomerChanged(CustomerChangedEvent event) {
+        CustomerSnapshot before = event.getBefore();
+        CustomerSnapshot after = event.getAfter();
+        lock.writeLock().lock();
+        try {
+            if (before == null || after == null || !Objects.equals(before.getName(), after.getName())) {
+                if (before != null) {
+                    names.remove(before.getName());
+                }
+                if (after != null) {
+                    names.add(after.getName(), 1);
+                }
+            }
+            if (before == null || after == null || !Objects.equals(before.getCompany(), after.getCompany())) {
+                if (before != null) {
+                    companies.remove(before.getCompany());
+                }
+                if (after != null) {
+                    companies.add(after.getCompany(), 1);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * 接頭辞に一致する名前・会社名を、顧客数の多い順にそれぞれ最大 limit 件
+     *
+     * 大文字小文字・全角半角・カタカナとひらがなの違いは区別しない（SearchKeys）。
+     */
+    public AutocompleteResult suggest(String prefix, int limit) {
+        lock.readLock().lock();
+        try {
+            return new AutocompleteResult(names.suggest(prefix, limit), companies.suggest(prefix, limit));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,444 @@
+package com.example.crm.search;
+
+import com.example.crm.dto.CustomerSummary;
+import com.example.crm.dto.PageCursor;
+import com.example.crm.event.CustomerChangedEvent;
+import com.example.crm.event.CustomerSnapshot;
+import com.example.crm.repository.CustomerRepository;
+import com.example.crm.repository.CustomerSearchType;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 顧客検索用のトライグラム転置インデックス
+ *
+ * 名前・会社名・メールアドレス・電話番号の 3 文字組（と 2 文字組）ごとに顧客IDの昇順の配列（long[]）を持ち、
+ * 部分一致検索ではキーワードの全トライグラムを含む候補（配列の共通部分）だけを
+ * 保持している値で照合する。テーブル全体を LIKE '%kw%' で走査しない。
+ * 2 文字のキーワード（「田中」など）は 2 文字組の配列がそのまま候補になる。
+ * 1 文字のキーワードは絞り込めないため扱わない（supports() が false。呼び出し側で DB を検索する）。
+ * 名前・会社名・メールアドレスは DB の検索キー列と同じく SearchKeys で正規化して保持・照合する。
+ * 起動時にリポジトリから構築し、以降は CustomerChangedEvent で差分更新する。
+ */
+@Component
+public class CustomerSearchIndex {
+    
+    private static final Logger log = LoggerFactory.getLogger(CustomerSearchIndex.class);
+    
+    private static final int GRAM = 3;
+    private static final int MIN_KEYWORD_LENGTH = 2;
+    /** 2 文字組をトライグラムと区別するための印（トライグラムは下位 48 ビットだけを使う） */
+    private static final long BIGRAM_TAG = 1L << 48;
+    private static final int LOAD_BATCH_SIZE = 1000;
+    private static final int MAX_CACHED_RESULTS = 16;
+    
+    /**
+     * インデックス対象の項目
+     */
+    private enum Field {
+        NAME, COMPANY, EMAIL, PHONE
+    }
+    
+    /**
+     * 1 つのトライグラムを含む顧客IDの昇順の配列
+     *
+     * ID ごとにオブジェクトを作らないため、HashSet<Long> に比べて 1 件あたりのメモリが数分の 1 で済む。
+     * 新規登録の ID は末尾に追加されるため、挿入はほとんど配列の末尾への追記になる。
+     */
+    private static final class Postings {
+        long[] ids = new long[2];
+        int size;
+        
+        void add(long id) {
+            if (size > 0 && ids[size - 1] < id) {
+                ensureCapacity();
+                ids[size++] = id;
+                return;
+            }
+            int pos = Arrays.binarySearch(ids, 0, size, id);
+            if (pos >= 0) {
+                return;
+            }
+            pos = -(pos + 1);
+            ensureCapacity();
+            System.arraycopy(ids, pos, ids, pos + 1, size - pos);
+            ids[pos] = id;
+            size++;
+        }
+        
+        void remove(long id) {
+            int pos = Arrays.binarySearch(ids, 0, size, id);
+            if (pos < 0) {
+                return;
+            }
+            System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+            size--;
+            if (size > 16 && size < ids.length / 4) {
+                ids = Arrays.copyOf(ids, ids.length / 2);
+            }
+        }
+        
+        boolean contains(long id) {
+            return Arrays.binarySearch(ids, 0, size, id) >= 0;
+        }
+        
+        private void ensureCapacity() {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, ids.length + (ids.length >> 1) + 1);
+            }
+        }
+    }
+    
+    /**
+     * インデックスに保持する 1 顧客分の照合用データ
+     */
+    private static final class Document {
+        final Long id;
+        /** 検索結果の要素（直近の検索結果で同じオブジェクトを共有する） */
+        final PageCursor key;
+        final String[] values = new String[Field.values().length];
+        
+        Document(CustomerSnapshot customer) {
+            this.id = customer.getId();
+            this.key = new PageCursor(customer.getRegisteredDate(), customer.getId());
+            values[Field.NAME.ordinal()] = SearchKeys.normalize(customer.getName());
+            values[Field.COMPANY.ordinal()] = SearchKeys.normalize(customer.getCompany());
+            values[Field.EMAIL.ordinal()] = SearchKeys.normalize(customer.getEmail());
+            // 電話番号は DB の検索と同じく元の値を正規化済みのキーワードと照合する
+            values[Field.PHONE.ordinal()] = customer.getPhone();
+        }
+        
+        String value(Field field) {
+            return values[field.ordinal()];
+        }
+    }
+    
+    @Autowired
+    private CustomerRepository customerRepository;
+    
+    @Value("${crm.search.index.enabled:true}")
+    private boolean enabled;
+    
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Document> documents = new HashMap<>();
+    private final List<Map<Long, Postings>> postings = new ArrayList<>();
+    /** 直近の検索結果（ページ送りのたびに照合・整列し直さないため。インデックスが変わったら捨てる） */
+    private final Map<String, List<PageCursor>> recentResults = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, List<PageCursor>> eldest) {
+            return size() > MAX_CACHED_RESULTS;
+        }
+    };
+    private volatile boolean ready;
+    
+    public CustomerSearchIndex() {
+        for (int i = 0; i < Field.values().length; i++) {
+            postings.add(new HashMap<>());
+        }
+    }
+    
+    /**
+     * 起動時にリポジトリから全件を ID 順に分割読み込みしてインデックスを構築
+     */
+    @PostConstruct
+    public void build() {
+        if (!enabled) {
+            log.info("顧客検索インデックスは無効です（crm.search.index.enabled=false）");
+            return;
+        }
+        long start = System.currentTimeMillis();
+        long lastId = 0L;
+        List<CustomerSummary> batch;
+        do {
+            batch = customerRepository.findSummariesAfterId(lastId, PageRequest.of(0, LOAD_BATCH_SIZE));
+            lock.writeLock().lock();
+            try {
+                for (CustomerSummary customer : batch) {
+                    add(new Document(CustomerSnapshot.of(customer)));
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            if (!batch.isEmpty()) {
+                lastId = batch.get(batch.size() - 1).getId();
+            }
+        } while (batch.size() == LOAD_BATCH_SIZE);
+        
+        ready = true;
+        log.info("顧客検索インデックスを構築しました: {}件, {}ms", size(), System.currentTimeMillis() - start);
+    }
+    
+    /**
+     * インデックスが検索に使える状態か
+     */
+    public boolean isReady() {
+        return ready;
+    }
+    
+    /**
+     * キーワードをインデックスで絞り込めるか（正規化後 2 文字以上）
+     */
+    public boolean supports(String keyword) {
+        return keyword != null && SearchKeys.normalize(keyword).length() >= MIN_KEYWORD_LENGTH;
+    }
+    
+    /**
+     * インデックス済みの顧客数
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * コミット済みの登録・更新・削除を反映
+     */
+    @TransactionalEventListener
+    public void onCustomerChanged(CustomerChangedEvent event) {
+        if (!ready) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            clearRecentResults();
+            if (event.isDeleted()) {
+                remove(event.getId());
+            } else {
+                replace(new Document(event.getAfter()));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * 部分一致検索（SearchKeys で正規化して照合）
+     *
+     * 一致した顧客のキーを一覧の表示順（登録日時の新しい順）で返す（変更不可）。
+     * 条件は CustomerRepository.searchAll / findBy...ContainingIgnoreCase と同じ。
+     * 同じ検索のページ送りでは、インデックスが変わっていなければ前回の結果をそのまま返す。
+     */
+    public List<PageCursor> search(CustomerSearchType searchType, String keyword) {
+        String key = SearchKeys.normalize(keyword);
+        String cacheKey = searchType + ":" + key;
+        List<PageCursor> hits = new ArrayList<>();
+        
+        lock.readLock().lock();
+        try {
+            synchronized (recentResults) {
+                List<PageCursor> cached = recentResults.get(cacheKey);
+                if (cached != null) {
+                    return cached;
+                }
+            }
+            switch (searchType) {
+                case NAME:
+                    collect(Field.NAME, key, hits, null);
+                    break;
+                case COMPANY:
+                    collect(Field.COMPANY, key, hits, null);
+                    break;
+                case EMAIL:
+                    collect(Field.EMAIL, key, hits, null);
+                    break;
+                default:
+                    Set<Long> seen = new HashSet<>();
+                    collect(Field.NAME, key, hits, seen);
+                    collect(Field.COMPANY, key, hits, seen);
+                    collect(Field.EMAIL, key, hits, seen);
+                    collect(Field.PHONE, key, hits, seen);
+            }
+            hits.sort(PageCursor.NEWEST_FIRST);
+            hits = Collections.unmodifiableList(hits);
+            // 読み取りロックの間はインデックスが変わらないため、この結果はまだ最新
+            synchronized (recentResults) {
+                recentResults.put(cacheKey, hits);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return hits;
+    }
+    
+    private void clearRecentResults() {
+        synchronized (recentResults) {
+            recentResults.clear();
+        }
+    }
+    
+    /**
+     * 候補を絞り込んでから保持値で照合し、一致したものを hits に追加
+     */
+    private void collect(Field field, String keyword, List<PageCursor> hits, Set<Long> seen) {
+        for (long id : candidates(field, keyword)) {
+            if (seen != null && seen.contains(id)) {
+                continue;
+            }
+            Document doc = documents.get(id);
+            String value = doc.value(field);
+            if (value != null && value.contains(keyword)) {
+                hits.add(doc.key);
+                if (seen != null) {
+                    seen.add(id);
+                }
+            }
+        }
+    }
+    
+    /**
+     * キーワードの全トライグラム（2 文字なら 2 文字組）を含む顧客ID（候補）を取得
+     *
+     * 1 文字のキーワードは絞り込めないため全件を候補にする（サービスからは supports() で除いている）。
+     */
+    private long[] candidates(Field field, String keyword) {
+        if (keyword.length() < MIN_KEYWORD_LENGTH) {
+            return documents.keySet().stream().mapToLong(Long::longValue).toArray();
+        }
+        Map<Long, Postings> fieldPostings = postings.get(field.ordinal());
+        List<Postings> lists = new ArrayList<>();
+        for (long gram : keywordGrams(keyword)) {
+            Postings ids = fieldPostings.get(gram);
+            if (ids == null) {
+                return new long[0];
+            }
+            lists.add(ids);
+        }
+        lists.sort(Comparator.comparingInt(ids -> ids.size));
+        
+        // 最も小さい配列を起点に、残りすべてに含まれる ID だけを残す（残りの配列は二分探索）
+        Postings smallest = lists.get(0);
+        long[] result = new long[smallest.size];
+        int count = 0;
+        for (int i = 0; i < smallest.size; i++) {
+            long id = smallest.ids[i];
+            boolean all = true;
+            for (int j = 1; j < lists.size() && all; j++) {
+                all = lists.get(j).contains(id);
+            }
+            if (all) {
+                result[count++] = id;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+    
+    private void add(Document doc) {
+        documents.put(doc.id, doc);
+        for (Field field : Field.values()) {
+            String value = doc.value(field);
+            if (value == null) {
+                continue;
+            }
+            Map<Long, Postings> fieldPostings = postings.get(field.ordinal());
+            for (long gram : grams(value)) {
+                fieldPostings.computeIfAbsent(gram, k -> new Postings()).add(doc.id);
+            }
+        }
+    }
+    
+    /**
+     * 登録・更新を反映
+     *
+     * 配列の途中への挿入・削除は配列のコピーになるため、変わっていないトライグラムの配列には触れない。
+     */
+    private void replace(Document doc) {
+        Document previous = documents.get(doc.id);
+        if (previous == null) {
+            add(doc);
+            return;
+        }
+        documents.put(doc.id, doc);
+        for (Field field : Field.values()) {
+            Set<Long> before = previous.value(field) != null ? grams(previous.value(field)) : Collections.emptySet();
+            Set<Long> after = doc.value(field) != null ? grams(doc.value(field)) : Collections.emptySet();
+            Map<Long, Postings> fieldPostings = postings.get(field.ordinal());
+            for (long gram : before) {
+                if (!after.contains(gram)) {
+                    removePosting(fieldPostings, gram, doc.id);
+                }
+            }
+            for (long gram : after) {
+                if (!before.contains(gram)) {
+                    fieldPostings.computeIfAbsent(gram, k -> new Postings()).add(doc.id);
+                }
+            }
+        }
+    }
+    
+    private void remove(Long id) {
+        Document doc = documents.remove(id);
+        if (doc == null) {
+            return;
+        }
+        for (Field field : Field.values()) {
+            String value = doc.value(field);
+            if (value == null) {
+                continue;
+            }
+            Map<Long, Postings> fieldPostings = postings.get(field.ordinal());
+            for (long gram : grams(value)) {
+                removePosting(fieldPostings, gram, id);
+            }
+        }
+    }
+    
+    private static void removePosting(Map<Long, Postings> fieldPostings, long gram, long id) {
+        Postings ids = fieldPostings.get(gram);
+        if (ids != null) {
+            ids.remove(id);
+            if (ids.size == 0) {
+                fieldPostings.remove(gram);
+            }
+        }
+    }
+    
+    /**
+     * 文字列に含まれるトライグラムと 2 文字組（重複なし）を long に詰めて返す（インデックス用）
+     */
+    private static Set<Long> grams(String value) {
+        Set<Long> grams = new HashSet<>();
+        for (int i = 0; i + GRAM <= value.length(); i++) {
+            grams.add(trigram(value, i));
+        }
+        for (int i = 0; i + 2 <= value.length(); i++) {
+            grams.add(bigram(value, i));
+        }
+        return grams;
+    }
+    
+    /**
+     * キーワードの絞り込みに使う組（3 文字以上ならトライグラム、2 文字なら 2 文字組）
+     */
+    private static Set<Long> keywordGrams(String keyword) {
+        if (keyword.length() < GRAM) {
+            return Collections.singleton(bigram(keyword, 0));
+        }
+        Set<Long> grams = new HashSet<>();
+        for (int i = 0; i + GRAM <= keyword.length(); i++) {
+            grams.add(trigram(keyword, i));
+        }
+        return grams;
+    }
+    
+    private static long trigram(String value, int i) {
+        return ((long) value.charAt(i) << 32) | ((long) value.charAt(i + 1) << 16) | value.charAt(i + 2);
+    }
+    
+    private static long bigram(String value, int i) {
+        return BIGRAM_TAG | ((long) value.charAt(i) << 16) | value.charAt(i + 1);
+    }
+}
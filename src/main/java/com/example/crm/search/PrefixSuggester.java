@@ -0,0 +1,281 @@
+package com.example.crm.search;
+
+import com.example.crm.dto.Suggestion;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 前方一致の入力候補（トライ木）
+ *
+ * 値を SearchKeys で正規化した文字列でトライ木に登録し、値ごとの件数（出現回数）を重みとして持つ。
+ * 部分木に k 語より多く含む節点は重みの上位 k 語を保持しており、候補の取得は
+ * 接頭辞の長さぶん辿るだけで済む（部分木の大きさに依存しない）。
+ * 子は文字の昇順の配列で持ち、二分探索で辿る。
+ *
+ * スレッドセーフではないため、呼び出し側でロックする。
+ */
+public class PrefixSuggester {
+    
+    /** 件数の多い順、同数は正規化キーの順 */
+    private static final Comparator<Term> ORDER = (a, b) -> {
+        int byCount = Integer.compare(b.count, a.count);
+        return byCount != 0 ? byCount : a.key.compareTo(b.key);
+    };
+    
+    private static final char[] NO_KEYS = new char[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+    
+    /**
+     * 1 つの値（正規化キーが同じ値をまとめたもの）
+     */
+    private static final class Term {
+        final String key;
+        /** 表示する値（同じキーの値が複数ある場合は最後に登録したもの） */
+        String value;
+        int count;
+        
+        Term(String key) {
+            this.key = key;
+        }
+    }
+    
+    private static final class Node {
+        char[] keys = NO_KEYS;
+        Node[] children = NO_CHILDREN;
+        /** この節点で終わる値（なければ null） */
+        Term term;
+        /** 部分木に含まれる値の数 */
+        int terms;
+        /** 部分木の上位 k 語（terms > k の節点のみ、ORDER の順） */
+        Term[] top;
+        
+        Node child(char c) {
+            int pos = Arrays.binarySearch(keys, c);
+            return pos >= 0 ? children[pos] : null;
+        }
+        
+        Node addChild(char c) {
+            int pos = Arrays.binarySearch(keys, c);
+            if (pos >= 0) {
+                return children[pos];
+            }
+            int insert = -(pos + 1);
+            char[] newKeys = new char[keys.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, insert);
+            System.arraycopy(children, 0, newChildren, 0, insert);
+            newKeys[insert] = c;
+            newChildren[insert] = new Node();
+            System.arraycopy(keys, insert, newKeys, insert + 1, keys.length - insert);
+            System.arraycopy(children, insert, newChildren, insert + 1, children.length - insert);
+            keys = newKeys;
+            children = newChildren;
+            return newChildren[insert];
+        }
+        
+        void removeChild(char c) {
+            int pos = Arrays.binarySearch(keys, c);
+            if (pos < 0) {
+                return;
+            }
+            char[] newKeys = new char[keys.length - 1];
+            Node[] newChildren = new Node[children.length - 1];
+            System.arraycopy(keys, 0, newKeys, 0, pos);
+            System.arraycopy(children, 0, newChildren, 0, pos);
+            System.arraycopy(keys, pos + 1, newKeys, pos, keys.length - pos - 1);
+            System.arraycopy(children, pos + 1, newChildren, pos, children.length - pos - 1);
+            keys = newKeys;
+            children = newChildren;
+        }
+    }
+    
+    private final int k;
+    private final Node root = new Node();
+    
+    /**
+     * @param k 取得できる候補の最大件数
+     */
+    public PrefixSuggester(int k) {
+        this.k = k;
+    }
+    
+    /**
+     * 値の件数を count 増やす（空の値は無視）
+     */
+    public void add(String value, int count) {
+        String key = SearchKeys.normalize(value);
+        if (key == null || key.isEmpty() || count <= 0) {
+            return;
+        }
+        Node[] path = new Node[key.length() + 1];
+        path[0] = root;
+        for (int i = 0; i < key.length(); i++) {
+            path[i + 1] = path[i].addChild(key.charAt(i));
+        }
+        Node last = path[key.length()];
+        if (last.term == null) {
+            last.term = new Term(key);
+            for (Node node : path) {
+                node.terms++;
+            }
+        }
+        Term term = last.term;
+        term.value = value;
+        term.count += count;
+        
+        // 葉から根へ（子の上位を使って親を計算するため）
+        for (int i = path.length - 1; i >= 0; i--) {
+            increased(path[i], term);
+        }
+    }
+    
+    /**
+     * 値の件数を 1 減らす（0 になった値は候補から除く）
+     */
+    public void remove(String value) {
+        String key = SearchKeys.normalize(value);
+        if (key == null || key.isEmpty()) {
+            return;
+        }
+        Node[] path = new Node[key.length() + 1];
+        path[0] = root;
+        for (int i = 0; i < key.length(); i++) {
+            path[i + 1] = path[i].child(key.charAt(i));
+            if (path[i + 1] == null) {
+                return;
+            }
+        }
+        Term term = path[key.length()].term;
+        if (term == null) {
+            return;
+        }
+        term.count--;
+        if (term.count == 0) {
+            path[key.length()].term = null;
+            for (Node node : path) {
+                node.terms--;
+            }
+            // 値がなくなった節点を親から外す
+            for (int i = key.length(); i > 0 && path[i].terms == 0; i--) {
+                path[i - 1].removeChild(key.charAt(i - 1));
+            }
+        }
+        for (int i = path.length - 1; i >= 0; i--) {
+            decreased(path[i], term);
+        }
+    }
+    
+    /**
+     * 接頭辞に一致する値を件数の多い順に最大 limit 件（limit は k まで）
+     */
+    public List<Suggestion> suggest(String prefix, int limit) {
+        String key = SearchKeys.normalize(prefix);
+        int size = Math.min(limit, k);
+        if (key == null || key.isEmpty() || size <= 0) {
+            return new ArrayList<>();
+        }
+        Node node = root;
+        for (int i = 0; i < key.length() && node != null; i++) {
+            node = node.child(key.charAt(i));
+        }
+        if (node == null) {
+            return new ArrayList<>();
+        }
+        Term[] top = node.top != null ? node.top : computeTop(node);
+        List<Suggestion> result = new ArrayList<>(Math.min(size, top.length));
+        for (int i = 0; i < top.length && result.size() < size; i++) {
+            result.add(new Suggestion(top[i].value, top[i].count));
+        }
+        return result;
+    }
+    
+    /**
+     * 登録されている値の数
+     */
+    public int size() {
+        return root.terms;
+    }
+    
+    /**
+     * term の件数が増えた（または新しく追加された）場合の上位の更新
+     */
+    private void increased(Node node, Term term) {
+        if (node.terms <= k) {
+            node.top = null;
+            return;
+        }
+        if (node.top == null) {
+            node.top = computeTop(node);
+            return;
+        }
+        Term[] top = node.top;
+        int pos = indexOf(top, term);
+        if (pos < 0) {
+            // terms > k の節点の上位はちょうど k 語。最下位より上なら入れ替える
+            if (ORDER.compare(term, top[k - 1]) >= 0) {
+                return;
+            }
+            pos = k - 1;
+            top[pos] = term;
+        }
+        // 件数が増えた語を前へ移動
+        while (pos > 0 && ORDER.compare(top[pos], top[pos - 1]) < 0) {
+            Term t = top[pos];
+            top[pos] = top[pos - 1];
+            top[pos - 1] = t;
+            pos--;
+        }
+    }
+    
+    /**
+     * term の件数が減った（または除かれた）場合の上位の更新
+     */
+    private void decreased(Node node, Term term) {
+        if (node.terms <= k) {
+            node.top = null;
+        } else if (node.top == null || indexOf(node.top, term) >= 0) {
+            // 上位から落ちた語の代わりは子の上位から選び直す
+            node.top = computeTop(node);
+        }
+    }
+    
+    /**
+     * 子の上位（上位を持たない小さな部分木はすべての語）から上位 k 語を求める
+     */
+    private Term[] computeTop(Node node) {
+        List<Term> candidates = new ArrayList<>();
+        if (node.term != null) {
+            candidates.add(node.term);
+        }
+        for (Node child : node.children) {
+            if (child.top != null) {
+                candidates.addAll(Arrays.asList(child.top));
+            } else {
+                collect(child, candidates);
+            }
+        }
+        candidates.sort(ORDER);
+        return candidates.subList(0, Math.min(k, candidates.size())).toArray(new Term[0]);
+    }
+    
+    private static void collect(Node node, List<Term> terms) {
+        if (node.term != null) {
+            terms.add(node.term);
+        }
+        for (Node child : node.children) {
+            collect(child, terms);
+        }
+    }
+    
+    private static int indexOf(Term[] top, Term term) {
+        for (int i = 0; i < top.length; i++) {
+            if (top[i] == term) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
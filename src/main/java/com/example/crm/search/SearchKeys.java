@@ -0,0 +1,62 @@
+package com.example.crm.search;
+
+import java.text.Normalizer;
+import java.util.Locale;
+
+/**
+ * 検索用の正規化キー
+ *
+ * NFKC 正規化（全角英数字・半角カナを統一）のうえ小文字化し、カタカナをひらがなに揃える。
+ * Customer の検索キー列・DB の検索条件・検索インデックスで同じ正規化を使い、
+ * 「ＡＢＣ」と「abc」、「ｻﾄｳ」「サトウ」「さとう」が互いに一致するようにする。
+ */
+public final class SearchKeys {
+    
+    /** LIKE のエスケープ文字（JPQL の ESCAPE 句と合わせる） */
+    public static final char LIKE_ESCAPE = '\\';
+    
+    private static final char KATAKANA_FIRST = 'ァ';
+    private static final char KATAKANA_LAST = 'ヶ';
+    private static final int KATAKANA_TO_HIRAGANA = 0x60;
+    
+    private SearchKeys() {
+    }
+    
+    /**
+     * 検索キーに正規化（null は null のまま）
+     */
+    public static String normalize(String value) {
+        if (value == null) {
+            return null;
+        }
+        char[] chars = Normalizer.normalize(value, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT).toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            if (chars[i] >= KATAKANA_FIRST && chars[i] <= KATAKANA_LAST) {
+                chars[i] -= KATAKANA_TO_HIRAGANA;
+            }
+        }
+        return new String(chars);
+    }
+    
+    /**
+     * キーワードを正規化し、LIKE の特殊文字（% _ とエスケープ文字）をエスケープ
+     */
+    public static String likeKey(String keyword) {
+        return escapeLike(normalize(keyword));
+    }
+    
+    /**
+     * LIKE の特殊文字をエスケープ（正規化はしない）
+     */
+    public static String escapeLike(String value) {
+        StringBuilder escaped = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '%' || c == '_' || c == LIKE_ESCAPE) {
+                escaped.append(LIKE_ESCAPE);
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.crm.service;
+
+import com.example.crm.entity.Customer;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 最終連絡日の更新をまとめて書き込むバッファ（ライトビハインド）
+ *
+ * 連絡イベントごとに SELECT + 全列 UPDATE を発行せず、顧客IDごとに
+ * 最新の日時だけをメモリに保持して、一定間隔で 1 つの UPDATE 文の
+ * JDBC バッチとして書き込む。同じ顧客への連続した更新は 1 行にまとまる。
+ */
+@Component
+public class ContactTouchBuffer {
+    
+    private static final Logger log = LoggerFactory.getLogger(ContactTouchBuffer.class);
+    
+    // 既に新しい日時が入っている場合は上書きしない。更新した行はバージョンを進める（ETag・楽観的ロック）
+    private static final String UPDATE_SQL =
+        "UPDATE customers SET last_contact_date = ?, version = version + 1 " +
+        "WHERE id = ? AND (last_contact_date IS NULL OR last_contact_date < ?)";
+    
+    private static final int JDBC_BATCH_SIZE = 500;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    
+    @Value("${crm.touch.max-pending:10000}")
+    private int maxPending;
+    
+    private final Map<Long, LocalDateTime> pending = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    
+    /**
+     * 最終連絡日の更新を登録（書き込みは次回のフラッシュ時）
+     *
+     * 未書き込みの件数が上限に達した場合は呼び出し元のスレッドでフラッシュする。
+     */
+    public void touch(Long id, LocalDateTime contactDate) {
+        merge(id, contactDate);
+        if (pending.size() >= maxPending) {
+            flush();
+        }
+    }
+    
+    /**
+     * 未書き込みの件数
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+    
+    /**
+     * 定期フラッシュ（間隔は crm.touch.flush-interval-ms）
+     */
+    @Scheduled(fixedDelayString = "${crm.touch.flush-interval-ms:1000}")
+    public void scheduledFlush() {
+        flush();
+    }
+    
+    /**
+     * 終了時に未書き込みの更新をすべて書き込む
+     */
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+    
+    /**
+     * 未書き込みの更新をまとめて書き込む
+     *
+     * @return 書き込み対象の件数
+     */
+    public int flush() {
+        flushLock.lock();
+        try {
+            List<Object[]> batch = new ArrayList<>();
+            List<Long> ids = new ArrayList<>();
+            for (Long id : pending.keySet()) {
+                LocalDateTime contactDate = pending.remove(id);
+                if (contactDate != null) {
+                    Timestamp timestamp = Timestamp.valueOf(contactDate);
+                    batch.add(new Object[] {timestamp, id, timestamp});
+                    ids.add(id);
+                }
+            }
+            if (batch.isEmpty()) {
+                return 0;
+            }
+            
+            try {
+                transactionTemplate.executeWithoutResult(status ->
+                    jdbcTemplate.batchUpdate(UPDATE_SQL, batch, JDBC_BATCH_SIZE, (ps, args) -> {
+                        ps.setTimestamp(1, (Timestamp) args[0]);
+                        ps.setLong(2, (Long) args[1]);
+                        ps.setTimestamp(3, (Timestamp) args[2]);
+                    }));
+            } catch (RuntimeException e) {
+                // 失敗した分は戻して次回に再試行する
+                for (Object[] args : batch) {
+                    merge((Long) args[1], ((Timestamp) args[0]).toLocalDateTime());
+                }
+                log.warn("最終連絡日の書き込みに失敗しました（{}件、次回再試行）", batch.size(), e);
+                return 0;
+            }
+            
+            // JDBC で直接更新したため、2次キャッシュの古いエンティティを破棄する
+            for (Long id : ids) {
+                entityManagerFactory.getCache().evict(Customer.class, id);
+            }
+            return batch.size();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+    
+    private void merge(Long id, LocalDateTime contactDate) {
+        pending.merge(id, contactDate, (current, next) -> next.isAfter(current) ? next : current);
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.crm.service;
+
+import com.example.crm.event.CustomerChangedEvent;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 顧客データのバージョン（登録・更新・削除がコミットされるたびに 1 増える）
+ *
+ * CustomerService・一括登録の変更はすべて CustomerChangedEvent を発行するため、
+ * その通知で値を進める。描画済みの画面断片（RenderedFragmentCache）はこの値と組で保持し、
+ * 値が変わるまでは DB の参照とテンプレートの描画を省略する。
+ */
+@Component
+public class CustomerDataVersion {
+    
+    private final AtomicLong version = new AtomicLong();
+    
+    /**
+     * コミット済みの変更でバージョンを進める
+     *
+     * 会社別顧客数などのインメモリ集計に変更が反映された後で進める（最後に実行する）。
+     * 先に進めると、新しいバージョンで反映前の集計を描画・保持してしまう。
+     */
+    @TransactionalEventListener
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onCustomerChanged(CustomerChangedEvent event) {
+        version.incrementAndGet();
+    }
+    
+    /**
+     * 現在のバージョン
+     */
+    public long current() {
+        return version.get();
+    }
+}
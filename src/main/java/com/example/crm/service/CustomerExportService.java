@@ -0,0 +1,149 @@
+package com.example.crm.service;
+
+import com.example.crm.dto.CustomerSummary;
+import com.example.crm.dto.PageCursor;
+import com.example.crm.entity.Customer;
+import com.example.crm.io.CsvCustomerRecordWriter;
+import com.example.crm.io.CustomerFileFormat;
+import com.example.crm.io.CustomerRecordWriter;
+import com.example.crm.io.JsonLinesCustomerRecordWriter;
+import com.example.crm.metrics.CustomerMetrics;
+import com.example.crm.repository.CustomerMatchMode;
+import com.example.crm.repository.CustomerRepository;
+import com.example.crm.repository.CustomerSearchType;
+import com.example.crm.search.CustomerSearchIndex;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * 顧客エクスポートサービス
+ *
+ * リポジトリの Stream から 1 件ずつ読み出して出力先へ直接書き込み、
+ * 書き込んだエンティティはすぐに永続化コンテキストから切り離す。
+ * 全件のリストを作らないため、件数に関係なくヒープ使用量は一定。
+ */
+@Service
+public class CustomerExportService {
+    
+    /** 一覧・検索結果のストリーミングで 1 回に読み出す件数 */
+    public static final int STREAM_CHUNK_SIZE = 500;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    @Autowired
+    private CustomerRepository customerRepository;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private CustomerSearchIndex searchIndex;
+    
+    @Autowired
+    private CustomerMetrics customerMetrics;
+    
+    /**
+     * 全顧客を出力
+     *
+     * @return 出力した件数
+     */
+    @Transactional(readOnly = true)
+    public long exportCustomers(OutputStream output, CustomerFileFormat format) throws IOException {
+        BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        CustomerRecordWriter records = format == CustomerFileFormat.JSON_LINES
+            ? new JsonLinesCustomerRecordWriter(writer, objectMapper.getFactory())
+            : new CsvCustomerRecordWriter(writer);
+        
+        long count = 0;
+        try (Stream<Customer> customers = customerRepository.streamAllBy()) {
+            Iterator<Customer> it = customers.iterator();
+            while (it.hasNext()) {
+                Customer customer = it.next();
+                records.write(customer);
+                entityManager.detach(customer);
+                count++;
+            }
+        }
+        records.flush();
+        writer.flush();
+        return count;
+    }
+    
+    /**
+     * 一覧・検索結果（一覧用の顧客情報）を NDJSON で出力
+     *
+     * 一覧と同じ順序（登録日時の新しい順）で STREAM_CHUNK_SIZE 件ずつ読み出し、
+     * 1 チャンク書くごとにフラッシュする。クライアントは検索の完了を待たずに先頭から処理できる。
+     * チャンクごとに別のクエリで読むため、遅いクライアントに書き込んでいる間も DB 接続を保持しない。
+     *
+     * @return 出力した件数
+     */
+    public long streamSummaries(OutputStream output, CustomerSearchType searchType, CustomerMatchMode matchMode,
+                                String keyword) throws IOException {
+        BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(writer);
+        generator.setRootValueSeparator(null);
+        ObjectWriter summaryWriter = objectMapper.writerFor(CustomerSummary.class)
+            .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        
+        boolean search = keyword != null && !keyword.trim().isEmpty();
+        long count = 0;
+        if (search && matchMode == CustomerMatchMode.CONTAINS && searchIndex.isReady()) {
+            // インデックスの結果は ID のみ。チャンクごとに一覧用の情報を読み出す
+            List<PageCursor> hits = searchIndex.search(searchType, keyword);
+            for (int start = 0; start < hits.size(); start += STREAM_CHUNK_SIZE) {
+                List<PageCursor> chunk = hits.subList(start, Math.min(start + STREAM_CHUNK_SIZE, hits.size()));
+                List<Long> ids = new ArrayList<>(chunk.size());
+                for (PageCursor hit : chunk) {
+                    ids.add(hit.getId());
+                }
+                count += writeChunk(generator, summaryWriter, customerRepository.findSummariesInOrder(ids));
+            }
+        } else {
+            PageCursor cursor = null;
+            while (true) {
+                List<CustomerSummary> rows = customerRepository.findChunk(searchType, matchMode, keyword, cursor,
+                    STREAM_CHUNK_SIZE);
+                count += writeChunk(generator, summaryWriter, rows);
+                if (rows.size() < STREAM_CHUNK_SIZE) {
+                    break;
+                }
+                CustomerSummary last = rows.get(rows.size() - 1);
+                cursor = new PageCursor(last.getRegisteredDate(), last.getId());
+            }
+        }
+        generator.flush();
+        if (search) {
+            customerMetrics.recordResultSize("searchStream", count);
+        }
+        return count;
+    }
+    
+    private static int writeChunk(JsonGenerator generator, ObjectWriter summaryWriter,
+                                  List<CustomerSummary> rows) throws IOException {
+        for (CustomerSummary row : rows) {
+            summaryWriter.writeValue(generator, row);
+            generator.writeRaw('\n');
+        }
+        generator.flush();
+        return rows.size();
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.crm.service;
+
+import com.example.crm.dto.CustomerRecord;
+import com.example.crm.dto.ImportResult;
+import com.example.crm.entity.Customer;
+import com.example.crm.event.CustomerChangedEvent;
+import com.example.crm.event.CustomerSnapshot;
+import com.example.crm.io.CsvCustomerRecordReader;
+import com.example.crm.io.CustomerFileFormat;
+import com.example.crm.io.CustomerRecordReader;
+import com.example.crm.io.JsonLinesCustomerRecordReader;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.PersistenceException;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 顧客一括登録サービス
+ *
+ * ファイルを 1 行ずつ解析・検証し、crm.import.batch-size 件ごとに
+ * 1 トランザクションで INSERT する（JDBC バッチ）。バッチごとに
+ * flush / clear するため、件数が増えてもメモリ使用量は一定。
+ *
+ * バッチの登録で DB エラーが起きた場合はそこで中断し、それまでに登録した件数と
+ * 中断した行を結果に記録して返す（登録済みのバッチは取り消さない）。
+ */
+@Service
+public class CustomerImportService {
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    @Autowired
+    private Validator validator;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Value("${crm.import.batch-size:500}")
+    private int batchSize;
+    
+    /**
+     * 一括登録を実行
+     */
+    public ImportResult importCustomers(InputStream input, CustomerFileFormat format) throws IOException {
+        long start = System.currentTimeMillis();
+        ImportResult result = new ImportResult();
+        
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        try (CustomerRecordReader records = format == CustomerFileFormat.JSON_LINES
+                ? new JsonLinesCustomerRecordReader(reader, objectMapper.reader())
+                : new CsvCustomerRecordReader(reader)) {
+            List<Customer> batch = new ArrayList<>(batchSize);
+            long batchFirstLine = 0;
+            while (true) {
+                CustomerRecord record;
+                try {
+                    record = records.next();
+                } catch (IllegalArgumentException e) {
+                    result.addRejected(records.getLineNumber(), e.getMessage());
+                    continue;
+                }
+                if (record == null) {
+                    break;
+                }
+                
+                Customer customer = record.toCustomer();
+                Set<ConstraintViolation<Customer>> violations = validator.validate(customer);
+                if (!violations.isEmpty()) {
+                    result.addRejected(records.getLineNumber(), violations.iterator().next().getMessage());
+                    continue;
+                }
+                
+                if (batch.isEmpty()) {
+                    batchFirstLine = records.getLineNumber();
+                }
+                batch.add(customer);
+                if (batch.size() >= batchSize) {
+                    if (!insertBatch(batch, batchFirstLine, result)) {
+                        break;
+                    }
+                    batch.clear();
+                }
+            }
+            if (!result.isStopped() && !batch.isEmpty()) {
+                insertBatch(batch, batchFirstLine, result);
+            }
+        }
+        
+        result.setElapsedMillis(System.currentTimeMillis() - start);
+        return result;
+    }
+    
+    /**
+     * 1 バッチ分を 1 トランザクションで登録し、登録できなければ中断を記録して false を返す
+     */
+    private boolean insertBatch(List<Customer> batch, long firstLine, ImportResult result) {
+        try {
+            insertBatch(batch);
+        } catch (DataAccessException | TransactionException | PersistenceException e) {
+            // EntityManager を直接使うため、flush() の失敗は DataAccessException に変換されずに届く
+            result.stop(firstLine, NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+            return false;
+        }
+        result.addImported(batch.size());
+        return true;
+    }
+    
+    private void insertBatch(List<Customer> batch) {
+        transactionTemplate.executeWithoutResult(status -> {
+            // 大量の新規行で2次キャッシュを押し流さないよう、キャッシュには載せない
+            entityManager.unwrap(Session.class).setCacheMode(CacheMode.IGNORE);
+            for (Customer customer : batch) {
+                entityManager.persist(customer);
+            }
+            entityManager.flush();
+            for (Customer customer : batch) {
+                eventPublisher.publishEvent(CustomerChangedEvent.created(CustomerSnapshot.of(customer)));
+            }
+            entityManager.clear();
+        });
+    }
+}
@@ -1,30 +1,204 @@
 package com.example.crm.service;
 
+import com.example.crm.dto.BulkOperationResult;
+import com.example.crm.dto.CompanyCount;
+import com.example.crm.dto.CustomerPage;
+import com.example.crm.dto.CustomerSummary;
+import com.example.crm.dto.PageCursor;
 import com.example.crm.entity.Customer;
+import com.example.crm.event.CustomerChangedEvent;
+import com.example.crm.event.CustomerSnapshot;
+import com.example.crm.metrics.CustomerMetrics;
+import com.example.crm.repository.CustomerMatchMode;
 import com.example.crm.repository.CustomerRepository;
+import com.example.crm.repository.CustomerSearchType;
+import com.example.crm.repository.CustomerUpdateField;
+import com.example.crm.search.CustomerSearchIndex;
+import com.example.crm.search.SearchKeys;
+import com.example.crm.statistics.CompanyCountAggregate;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
 
 /**
  * 顧客サービスクラス
+ *
+ * 各メソッドの処理時間は crm.customer.service（method タグ付き）として記録する。
  */
 @Service
 @Transactional
+@Timed(value = "crm.customer.service", percentiles = {0.5, 0.95, 0.99}, histogram = true)
 public class CustomerService {
     
+    /** 1 ページあたりのデフォルト件数 */
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    
+    /** 1 ページあたりの最大件数 */
+    public static final int MAX_PAGE_SIZE = 500;
+    
+    /** 一括削除・一括更新で 1 回に指定できる ID（検索条件による一括削除では一致する顧客）の最大件数 */
+    public static final int MAX_BULK_IDS = 10000;
+    
     @Autowired
     private CustomerRepository customerRepository;
     
+    @Autowired
+    private CustomerSearchIndex searchIndex;
+    
+    @Autowired
+    private CompanyCountAggregate companyCountAggregate;
+    
+    @Autowired
+    private ContactTouchBuffer contactTouchBuffer;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Autowired
+    private CustomerMetrics customerMetrics;
+    
+    @Value("${crm.bulk.batch-size:500}")
+    private int bulkBatchSize;
+    
     /**
      * 全顧客を取得
      */
-    public List<Customer> getAllCustomers() {
-        return customerRepository.findAll();
+    public List<CustomerSummary> getAllCustomers() {
+        return customerRepository.findAllSummaries();
+    }
+    
+    /**
+     * 顧客一覧・検索結果を 1 ページ分取得（キーセットページング）
+     *
+     * after / before には前回ページの nextCursor / prevCursor を渡す。
+     * どちらも指定がなければ先頭ページを返す。
+     */
+    @Transactional(readOnly = true)
+    public CustomerPage getCustomerPage(CustomerSearchType searchType, String keyword,
+                                        String after, String before, int size) {
+        return getCustomerPage(searchType, CustomerMatchMode.CONTAINS, keyword, after, before, size);
+    }
+    
+    /**
+     * 一致方法を指定して顧客一覧・検索結果を 1 ページ分取得
+     *
+     * 前方一致は検索キー列のインデックスを使うため、検索インデックスを経由せず DB で検索する。
+     */
+    @Transactional(readOnly = true)
+    public CustomerPage getCustomerPage(CustomerSearchType searchType, CustomerMatchMode matchMode, String keyword,
+                                        String after, String before, int size) {
+        CustomerPage page = findPage(searchType, matchMode, keyword, after, before, size);
+        if (keyword != null && !keyword.trim().isEmpty()) {
+            customerMetrics.recordResultSize("searchPage", page.getTotalCount());
+        }
+        return page;
+    }
+    
+    private CustomerPage findPage(CustomerSearchType searchType, CustomerMatchMode matchMode, String keyword,
+                                  String after, String before, int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        if (matchMode == CustomerMatchMode.CONTAINS && useSearchIndex(keyword)) {
+            return indexedPage(searchType, keyword, after, before, pageSize);
+        }
+        
+        long totalCount = customerRepository.countMatching(searchType, matchMode, keyword);
+        
+        PageCursor beforeCursor = PageCursor.decode(before);
+        if (beforeCursor != null) {
+            List<CustomerSummary> rows = customerRepository.findPage(searchType, matchMode, keyword, beforeCursor, true, pageSize + 1);
+            if (rows.size() > pageSize) {
+                rows = rows.subList(0, pageSize);
+                Collections.reverse(rows);
+                return new CustomerPage(rows, totalCount, pageSize,
+                    cursorOf(rows.get(rows.size() - 1)), cursorOf(rows.get(0)));
+            }
+            // 前方に 1 ページ分の件数がなければ先頭ページとして取り直す
+            return firstPageFrom(searchType, matchMode, keyword, null, totalCount, pageSize);
+        }
+        return firstPageFrom(searchType, matchMode, keyword, PageCursor.decode(after), totalCount, pageSize);
+    }
+    
+    private CustomerPage firstPageFrom(CustomerSearchType searchType, CustomerMatchMode matchMode, String keyword,
+                                       PageCursor cursor, long totalCount, int pageSize) {
+        List<CustomerSummary> rows = customerRepository.findPage(searchType, matchMode, keyword, cursor, false, pageSize + 1);
+        boolean hasNext = rows.size() > pageSize;
+        if (hasNext) {
+            rows = rows.subList(0, pageSize);
+        }
+        String nextCursor = hasNext ? cursorOf(rows.get(rows.size() - 1)) : null;
+        String prevCursor = (cursor != null && !rows.isEmpty()) ? cursorOf(rows.get(0)) : null;
+        return new CustomerPage(rows, totalCount, pageSize, nextCursor, prevCursor);
+    }
+    
+    /**
+     * 検索インデックスの結果（表示順に整列済み）からページを切り出す
+     */
+    private CustomerPage indexedPage(CustomerSearchType searchType, String keyword,
+                                     String after, String before, int pageSize) {
+        List<PageCursor> hits = searchIndex.search(searchType, keyword);
+        int start;
+        int end;
+        
+        PageCursor beforeCursor = PageCursor.decode(before);
+        if (beforeCursor != null) {
+            end = positionOf(hits, beforeCursor, false);
+            start = end - pageSize;
+            if (start <= 0) {
+                start = 0;
+                end = Math.min(pageSize, hits.size());
+            }
+        } else {
+            PageCursor afterCursor = PageCursor.decode(after);
+            start = afterCursor != null ? positionOf(hits, afterCursor, true) : 0;
+            end = Math.min(start + pageSize, hits.size());
+        }
+        
+        List<PageCursor> pageHits = hits.subList(start, end);
+        String nextCursor = (end < hits.size() && !pageHits.isEmpty()) ? hits.get(end - 1).encode() : null;
+        String prevCursor = (start > 0 && !pageHits.isEmpty()) ? hits.get(start).encode() : null;
+        List<CustomerSummary> rows = customerRepository.findSummariesInOrder(idsOf(pageHits));
+        return new CustomerPage(rows, hits.size(), pageSize, nextCursor, prevCursor);
+    }
+    
+    /**
+     * カーソルの位置（after = true ならカーソルの直後）を二分探索で求める
+     */
+    private static int positionOf(List<PageCursor> hits, PageCursor cursor, boolean after) {
+        int pos = Collections.binarySearch(hits, cursor, PageCursor.NEWEST_FIRST);
+        if (pos >= 0) {
+            return after ? pos + 1 : pos;
+        }
+        return -(pos + 1);
+    }
+    
+    private static String cursorOf(CustomerSummary customer) {
+        return new PageCursor(customer.getRegisteredDate(), customer.getId()).encode();
+    }
+    
+    /**
+     * 部分一致検索に検索インデックスを使うか（1 文字のキーワードは絞り込めないため DB で検索する）
+     */
+    private boolean useSearchIndex(String keyword) {
+        return searchIndex.isReady() && keyword != null && !keyword.trim().isEmpty() && searchIndex.supports(keyword);
+    }
+    
+    private static List<Long> idsOf(List<PageCursor> hits) {
+        List<Long> ids = new ArrayList<>(hits.size());
+        for (PageCursor hit : hits) {
+            ids.add(hit.getId());
+        }
+        return ids;
     }
     
     /**
@@ -38,49 +212,217 @@ public class CustomerService {
      * 顧客を保存（新規登録・更新）
      */
     public Customer saveCustomer(Customer customer) {
-        return customerRepository.save(customer);
+        CustomerSnapshot before = null;
+        if (customer.getId() != null) {
+            before = customerRepository.findById(customer.getId()).map(CustomerSnapshot::of).orElse(null);
+        }
+        Customer saved = customerRepository.save(customer);
+        eventPublisher.publishEvent(new CustomerChangedEvent(before, CustomerSnapshot.of(saved)));
+        return saved;
     }
     
     /**
      * 顧客を削除
      */
     public void deleteCustomer(Long id) {
-        customerRepository.deleteById(id);
+        customerRepository.findById(id).ifPresent(customer -> {
+            customerRepository.delete(customer);
+            eventPublisher.publishEvent(CustomerChangedEvent.deleted(CustomerSnapshot.of(customer)));
+        });
+    }
+    
+    /**
+     * 指定した ID の顧客を一括削除
+     *
+     * batch-size 件ずつ、変更イベント用に一覧の項目だけを読み出してから DELETE 文 1 つで削除する。
+     * エンティティは読み込まない。全バッチを 1 トランザクションで実行し、途中で失敗した場合はすべて取り消す。
+     */
+    public BulkOperationResult deleteCustomers(Collection<Long> ids) {
+        long start = System.currentTimeMillis();
+        List<Long> targets = bulkTargets(ids);
+        BulkOperationResult result = new BulkOperationResult();
+        result.addTargets(targets.size());
+        for (int from = 0; from < targets.size(); from += bulkBatchSize) {
+            List<Long> batch = targets.subList(from, Math.min(from + bulkBatchSize, targets.size()));
+            deleteRows(customerRepository.findSummariesInOrder(batch), result);
+        }
+        result.setElapsedMillis(System.currentTimeMillis() - start);
+        return result;
+    }
+    
+    /**
+     * 検索条件に一致する顧客を一括削除（キーワードは必須）
+     *
+     * 部分一致で検索インデックスが使える場合は一致する ID をインデックスから求め、
+     * それ以外は一覧と同じ順序で batch-size 件ずつ DB から読み出しながら削除する。
+     * 一致する顧客が MAX_BULK_IDS 件を超える場合は、何も削除せずに件数を添えて拒否する
+     * （短いキーワードでテーブルのほとんどを 1 トランザクションで削除しないため）。
+     */
+    public BulkOperationResult deleteMatching(CustomerSearchType searchType, CustomerMatchMode matchMode, String keyword) {
+        if (keyword == null || keyword.trim().isEmpty()) {
+            throw new IllegalArgumentException("削除する顧客の検索キーワードを入力してください");
+        }
+        long start = System.currentTimeMillis();
+        BulkOperationResult result = new BulkOperationResult();
+        if (matchMode == CustomerMatchMode.CONTAINS && useSearchIndex(keyword)) {
+            List<Long> targets = idsOf(searchIndex.search(searchType, keyword));
+            checkMatchingCount(targets.size());
+            result.addTargets(targets.size());
+            for (int from = 0; from < targets.size(); from += bulkBatchSize) {
+                List<Long> batch = targets.subList(from, Math.min(from + bulkBatchSize, targets.size()));
+                deleteRows(customerRepository.findSummariesInOrder(batch), result);
+            }
+        } else {
+            checkMatchingCount(customerRepository.countMatching(searchType, matchMode, keyword));
+            PageCursor cursor = null;
+            List<CustomerSummary> rows;
+            do {
+                // 削除した行はカーソルより前にあるため、続きから読めば残りの一致する行だけが返る
+                rows = customerRepository.findChunk(searchType, matchMode, keyword, cursor, bulkBatchSize);
+                if (rows.isEmpty()) {
+                    break;
+                }
+                result.addTargets(rows.size());
+                // 数えた後に一致する顧客が増えた場合も上限を超えては削除しない（例外で全体を取り消す）
+                checkMatchingCount(result.getTargetCount());
+                deleteRows(rows, result);
+                CustomerSummary last = rows.get(rows.size() - 1);
+                cursor = new PageCursor(last.getRegisteredDate(), last.getId());
+            } while (rows.size() == bulkBatchSize);
+        }
+        result.setElapsedMillis(System.currentTimeMillis() - start);
+        return result;
+    }
+    
+    private static void checkMatchingCount(long count) {
+        if (count > MAX_BULK_IDS) {
+            throw new IllegalArgumentException(String.format(
+                "検索条件に一致する顧客が%d件あります。一度に削除できるのは%d件までです（条件を絞り込んでください）",
+                count, MAX_BULK_IDS));
+        }
+    }
+    
+    /**
+     * 指定した ID の顧客の項目（会社名・メモ）を一括で同じ値に変更（空の値は未設定にする）
+     *
+     * batch-size 件ずつ UPDATE 文 1 つで変更し、バージョンを 1 進める。全バッチを 1 トランザクションで実行する。
+     * 会社名の場合は変更前の値を読み出し、集計・検索インデックス用の変更イベントを発行する。
+     */
+    public BulkOperationResult updateField(Collection<Long> ids, CustomerUpdateField field, String value) {
+        String newValue = (value == null || value.trim().isEmpty()) ? null : value.trim();
+        if (field == CustomerUpdateField.NOTES && newValue != null && newValue.length() > Customer.NOTES_LENGTH) {
+            throw new IllegalArgumentException("メモは" + Customer.NOTES_LENGTH + "文字以内で入力してください");
+        }
+        long start = System.currentTimeMillis();
+        List<Long> targets = bulkTargets(ids);
+        BulkOperationResult result = new BulkOperationResult();
+        result.addTargets(targets.size());
+        for (int from = 0; from < targets.size(); from += bulkBatchSize) {
+            List<Long> batch = targets.subList(from, Math.min(from + bulkBatchSize, targets.size()));
+            if (field == CustomerUpdateField.COMPANY) {
+                List<CustomerSummary> rows = customerRepository.findSummariesInOrder(batch);
+                if (rows.isEmpty()) {
+                    continue;
+                }
+                result.addBatch(customerRepository.updateCompanyByIdIn(idsOfRows(rows), newValue, Customer.searchKey(newValue)));
+                for (CustomerSummary row : rows) {
+                    CustomerSnapshot before = CustomerSnapshot.of(row);
+                    eventPublisher.publishEvent(new CustomerChangedEvent(before, before.withCompany(newValue)));
+                }
+            } else {
+                // メモは一覧・集計・検索インデックスに含まれないため変更イベントは不要
+                result.addBatch(customerRepository.updateNotesByIdIn(batch, newValue));
+            }
+        }
+        result.setElapsedMillis(System.currentTimeMillis() - start);
+        return result;
+    }
+    
+    /**
+     * 読み出した顧客を DELETE 文 1 つで削除し、削除イベントを発行
+     */
+    private void deleteRows(List<CustomerSummary> rows, BulkOperationResult result) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        result.addBatch(customerRepository.deleteByIdIn(idsOfRows(rows)));
+        for (CustomerSummary row : rows) {
+            eventPublisher.publishEvent(CustomerChangedEvent.deleted(CustomerSnapshot.of(row)));
+        }
+    }
+    
+    /**
+     * 一括操作の対象 ID（重複と null を除き、指定順を保つ）
+     */
+    private static List<Long> bulkTargets(Collection<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            throw new IllegalArgumentException("顧客を選択してください");
+        }
+        LinkedHashSet<Long> targets = new LinkedHashSet<>(ids);
+        targets.remove(null);
+        if (targets.size() > MAX_BULK_IDS) {
+            throw new IllegalArgumentException("一度に指定できる顧客は" + MAX_BULK_IDS + "件までです");
+        }
+        return new ArrayList<>(targets);
+    }
+    
+    private static List<Long> idsOfRows(List<CustomerSummary> rows) {
+        List<Long> ids = new ArrayList<>(rows.size());
+        for (CustomerSummary row : rows) {
+            ids.add(row.getId());
+        }
+        return ids;
     }
     
     /**
      * 名前で検索
      */
-    public List<Customer> searchByName(String name) {
-        return customerRepository.findByNameContainingIgnoreCase(name);
+    public List<CustomerSummary> searchByName(String name) {
+        List<CustomerSummary> result = useSearchIndex(name)
+            ? customerRepository.findSummariesInOrder(idsOf(searchIndex.search(CustomerSearchType.NAME, name)))
+            : customerRepository.findByNameContainingIgnoreCase(SearchKeys.likeKey(name));
+        customerMetrics.recordResultSize("searchByName", result.size());
+        return result;
     }
     
     /**
      * 会社名で検索
      */
-    public List<Customer> searchByCompany(String company) {
-        return customerRepository.findByCompanyContainingIgnoreCase(company);
+    public List<CustomerSummary> searchByCompany(String company) {
+        List<CustomerSummary> result = useSearchIndex(company)
+            ? customerRepository.findSummariesInOrder(idsOf(searchIndex.search(CustomerSearchType.COMPANY, company)))
+            : customerRepository.findByCompanyContainingIgnoreCase(SearchKeys.likeKey(company));
+        customerMetrics.recordResultSize("searchByCompany", result.size());
+        return result;
     }
     
     /**
      * メールアドレスで検索
      */
-    public List<Customer> searchByEmail(String email) {
-        return customerRepository.findByEmailContainingIgnoreCase(email);
+    public List<CustomerSummary> searchByEmail(String email) {
+        List<CustomerSummary> result = useSearchIndex(email)
+            ? customerRepository.findSummariesInOrder(idsOf(searchIndex.search(CustomerSearchType.EMAIL, email)))
+            : customerRepository.findByEmailContainingIgnoreCase(SearchKeys.likeKey(email));
+        customerMetrics.recordResultSize("searchByEmail", result.size());
+        return result;
     }
     
     /**
      * 全項目で検索
      */
-    public List<Customer> searchAll(String keyword) {
-        return customerRepository.searchAll(keyword);
+    public List<CustomerSummary> searchAll(String keyword) {
+        List<CustomerSummary> result = useSearchIndex(keyword)
+            ? customerRepository.findSummariesInOrder(idsOf(searchIndex.search(CustomerSearchType.ALL, keyword)))
+            : customerRepository.searchAll(SearchKeys.likeKey(keyword));
+        customerMetrics.recordResultSize("searchAll", result.size());
+        return result;
     }
     
     /**
      * 顧客数を取得
      */
     public long getCustomerCount() {
-        return customerRepository.count();
+        return companyCountAggregate.getTotalCount();
     }
     
     /**
@@ -90,16 +432,26 @@ public class CustomerService {
         return customerRepository.countByCompany();
     }
     
+    /**
+     * 顧客数の多い上位 limit 社を取得（集計済みの値を参照）
+     */
+    public List<CompanyCount> getTopCompanies(int limit) {
+        return companyCountAggregate.getTopCompanies(limit);
+    }
+    
+    /**
+     * 指定した会社の顧客数を取得（集計済みの値を参照）
+     */
+    public long getCustomerCountOfCompany(String company) {
+        return companyCountAggregate.getCount(company);
+    }
+    
     /**
      * 最終連絡日を更新
+     *
+     * 即時には書き込まず ContactTouchBuffer に登録し、定期的にまとめて反映する。
      */
     public void updateLastContactDate(Long id) {
-        Optional<Customer> customerOpt = customerRepository.findById(id);
-        if (customerOpt.isPresent()) {
-            Customer customer = customerOpt.get();
-            customer.setLastContactDate(LocalDateTime.now());
-            customerRepository.save(customer);
-        }
+        contactTouchBuffer.touch(id, LocalDateTime.now());
     }
 }
-
@@ -0,0 +1,115 @@
+package com.example.crm.statistics;
+
+import com.example.crm.dto.CompanyCount;
+import com.example.crm.event.CustomerChangedEvent;
+import com.example.crm.event.CustomerSnapshot;
+import com.example.crm.repository.CustomerRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+
+/**
+ * 会社別顧客数の集計（インメモリで差分更新）
+ *
+ * 起動時に countByCompany() で 1 回だけ集計し、以降は CustomerChangedEvent を
+ * 受けて件数を増減する。件数順のランキングを TreeSet で保持しているため、
+ * 上位 K 社の取得は顧客数・会社数に関係なく K 件分のコストで済む。
+ */
+@Component
+public class CompanyCountAggregate {
+    
+    /** 件数の多い順、同数は会社名順（未設定は最後） */
+    private static final Comparator<CompanyCount> RANKING =
+        Comparator.comparingLong(CompanyCount::getCount).reversed()
+            .thenComparing(CompanyCount::getCompany, Comparator.nullsLast(Comparator.naturalOrder()));
+    
+    @Autowired
+    private CustomerRepository customerRepository;
+    
+    private final Map<String, CompanyCount> counts = new HashMap<>();
+    private final TreeSet<CompanyCount> ranking = new TreeSet<>(RANKING);
+    private long totalCount;
+    
+    /**
+     * 起動時に DB から集計を読み込む
+     */
+    @PostConstruct
+    public synchronized void build() {
+        counts.clear();
+        ranking.clear();
+        for (Object[] row : customerRepository.countByCompany()) {
+            put(new CompanyCount((String) row[0], (Long) row[1]));
+        }
+        totalCount = customerRepository.count();
+    }
+    
+    /**
+     * コミット済みの登録・更新・削除を反映
+     *
+     * 描画済みの統計画面を無効にする CustomerDataVersion より先に反映する。
+     */
+    @TransactionalEventListener
+    @Order(0)
+    public synchronized void onCustomerChanged(CustomerChangedEvent event) {
+        CustomerSnapshot before = event.getBefore();
+        CustomerSnapshot after = event.getAfter();
+        if (before != null && after != null && Objects.equals(before.getCompany(), after.getCompany())) {
+            return;
+        }
+        if (before != null) {
+            add(before.getCompany(), -1);
+            totalCount--;
+        }
+        if (after != null) {
+            add(after.getCompany(), 1);
+            totalCount++;
+        }
+    }
+    
+    /**
+     * 顧客数の多い上位 limit 社を取得
+     */
+    public synchronized List<CompanyCount> getTopCompanies(int limit) {
+        List<CompanyCount> result = new ArrayList<>(Math.min(limit, ranking.size()));
+        Iterator<CompanyCount> it = ranking.iterator();
+        while (it.hasNext() && result.size() < limit) {
+            result.add(it.next());
+        }
+        return result;
+    }
+    
+    /**
+     * 指定した会社の顧客数を取得
+     */
+    public synchronized long getCount(String company) {
+        CompanyCount current = counts.get(company);
+        return current != null ? current.getCount() : 0;
+    }
+    
+    /**
+     * 総顧客数を取得
+     */
+    public synchronized long getTotalCount() {
+        return totalCount;
+    }
+    
+    private void add(String company, long delta) {
+        CompanyCount current = counts.remove(company);
+        if (current != null) {
+            ranking.remove(current);
+        }
+        long count = (current != null ? current.getCount() : 0) + delta;
+        if (count > 0) {
+            put(new CompanyCount(company, count));
+        }
+    }
+    
+    private void put(CompanyCount companyCount) {
+        counts.put(companyCount.getCompany(), companyCount);
+        ranking.add(companyCount);
+    }
+}
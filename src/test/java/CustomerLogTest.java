@@ -0,0 +1,157 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 更新ログの追記・再生と、壊れた末尾の切り捨て
+ */
+class CustomerLogTest {
+    
+    @TempDir
+    Path dir;
+    
+    @Test
+    void replayAppliesPutsDeletesAndCommittedBatches() throws IOException {
+        Path path = dir.resolve("customers.dat.0.log");
+        try (CustomerLog log = CustomerLog.open(path, CustomerLog.SyncPolicy.NEVER)) {
+            log.put(TestCustomers.customer(1, "田中"));
+            log.put(TestCustomers.customer(2, "佐藤"));
+            log.delete(1);
+            log.beginBatch();
+            log.put(TestCustomers.customer(3, "鈴木"));
+            log.put(TestCustomers.customer(2, "佐藤（更新）"));
+            assertThat(log.commitBatch()).isEqualTo(2);
+            log.endBatch();
+        }
+        
+        Map<Integer, Customer> replayed = new TreeMap<>();
+        assertThat(CustomerLog.replay(path, into(replayed))).isEqualTo(5);
+        assertThat(TestCustomers.describeAll(replayed)).isEqualTo(TestCustomers.describeAll(Map.of(
+            2, TestCustomers.customer(2, "佐藤（更新）"),
+            3, TestCustomers.customer(3, "鈴木"))));
+    }
+    
+    @Test
+    void replayingTwiceGivesTheSameContents() throws IOException {
+        Path path = dir.resolve("customers.dat.0.log");
+        try (CustomerLog log = CustomerLog.open(path, CustomerLog.SyncPolicy.NEVER)) {
+            log.put(TestCustomers.customer(1, "田中"));
+            log.delete(1);
+            log.put(TestCustomers.customer(2, "佐藤"));
+        }
+        
+        Map<Integer, Customer> replayed = new TreeMap<>();
+        CustomerLog.replay(path, into(replayed));
+        Map<Integer, String> once = TestCustomers.describeAll(replayed);
+        CustomerLog.replay(path, into(replayed));
+        assertThat(TestCustomers.describeAll(replayed)).isEqualTo(once);
+    }
+    
+    @Test
+    void tornTailIsTruncatedAndLaterAppendsAreKept() throws IOException {
+        Path path = dir.resolve("customers.dat.0.log");
+        try (CustomerLog log = CustomerLog.open(path, CustomerLog.SyncPolicy.NEVER)) {
+            log.put(TestCustomers.customer(1, "田中"));
+            log.put(TestCustomers.customer(2, "佐藤"));
+        }
+        long validSize = Files.size(path);
+        try (CustomerLog log = CustomerLog.open(path, CustomerLog.SyncPolicy.NEVER)) {
+            log.put(TestCustomers.customer(3, "鈴木"));
+        }
+        // 最後のレコードの書き込み途中で異常終了した状態にする
+        truncate(path, Files.size(path) - 5);
+        
+        Map<Integer, Customer> replayed = new TreeMap<>();
+        assertThat(CustomerLog.replay(path, into(replayed))).isEqualTo(2);
+        assertThat(replayed).containsOnlyKeys(1, 2);
+        assertThat(Files.size(path)).isEqualTo(validSize);
+        
+        // 切り捨てた後に追記したレコードは次の再生で読める
+        try (CustomerLog log = CustomerLog.open(path, CustomerLog.SyncPolicy.NEVER)) {
+            log.put(TestCustomers.customer(4, "高橋"));
+        }
+        replayed.clear();
+        assertThat(CustomerLog.replay(path, into(replayed))).isEqualTo(3);
+        assertThat(replayed).containsOnlyKeys(1, 2, 4);
+    }
+    
+    @Test
+    void recordWithBadChecksumAndEverythingAfterItIsDropped() throws IOException {
+        Path path = dir.resolve("customers.dat.0.log");
+        long firstRecordSize;
+        try (CustomerLog log = CustomerLog.open(path, CustomerLog.SyncPolicy.NEVER)) {
+            log.put(TestCustomers.customer(1, "田中"));
+            firstRecordSize = log.size();
+            log.put(TestCustomers.customer(2, "佐藤"));
+            log.put(TestCustomers.customer(3, "鈴木"));
+        }
+        // 2 件目の内容の 1 バイトを書き換える
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            long position = firstRecordSize + 12;
+            file.seek(position);
+            int value = file.read();
+            file.seek(position);
+            file.write(value ^ 0xFF);
+        }
+        
+        Map<Integer, Customer> replayed = new TreeMap<>();
+        assertThat(CustomerLog.replay(path, into(replayed))).isEqualTo(1);
+        assertThat(replayed).containsOnlyKeys(1);
+        assertThat(Files.size(path)).isEqualTo(firstRecordSize);
+    }
+    
+    @Test
+    void uncommittedBatchIsLostAsAWhole() throws IOException {
+        Path path = dir.resolve("customers.dat.0.log");
+        CustomerLog log = CustomerLog.open(path, CustomerLog.SyncPolicy.NEVER);
+        log.put(TestCustomers.customer(1, "田中"));
+        log.beginBatch();
+        log.put(TestCustomers.customer(2, "佐藤"));
+        log.commitBatch();
+        log.put(TestCustomers.customer(3, "鈴木"));
+        log.delete(1);
+        // commitBatch() / close() の前に異常終了した状態で読む
+        
+        Map<Integer, Customer> replayed = new TreeMap<>();
+        assertThat(CustomerLog.replay(path, into(replayed))).isEqualTo(2);
+        assertThat(replayed).containsOnlyKeys(1, 2);
+        log.close();
+    }
+    
+    @Test
+    void missingLogReplaysNothing() throws IOException {
+        Map<Integer, Customer> replayed = new TreeMap<>();
+        assertThat(CustomerLog.replay(dir.resolve("customers.dat.9.log"), into(replayed))).isZero();
+        assertThat(replayed).isEmpty();
+    }
+    
+    private static CustomerLog.Replayer into(Map<Integer, Customer> customers) {
+        return new CustomerLog.Replayer() {
+            @Override
+            public void put(Customer customer) {
+                customers.put(customer.getId(), customer);
+            }
+            
+            @Override
+            public void delete(int id) {
+                customers.remove(id);
+            }
+        };
+    }
+    
+    private static void truncate(Path path, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(size);
+        }
+    }
+}
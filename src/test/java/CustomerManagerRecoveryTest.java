@@ -0,0 +1,207 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * CustomerManager の再起動時の復元（スナップショット + 更新ログ）と、書き込み中のコンパクション
+ *
+ * コンパクションの閾値は pom.xml の surefire の設定で小さくしてある（crm.log.compact-threshold-bytes）。
+ */
+class CustomerManagerRecoveryTest {
+    
+    @TempDir
+    Path dir;
+    
+    @Test
+    void reopenRestoresAddsUpdatesAndDeletes() {
+        String dataFile = dir.resolve("customers.dat").toString();
+        Map<Integer, String> expected = new TreeMap<>();
+        CustomerManager manager = new CustomerManager(dataFile);
+        for (int i = 0; i < 50; i++) {
+            Customer customer = manager.addCustomer("顧客" + i, "c" + i + "@example.com", "03-0000-0000", "会社" + (i % 5), "東京都");
+            expected.put(customer.getId(), null);
+        }
+        manager.updateCustomer(3, "更新後", null, null, "別会社", null, "メモ");
+        manager.deleteCustomer(4);
+        manager.deleteCustomer(50);
+        expected.remove(4);
+        expected.remove(50);
+        expected.replaceAll((id, ignored) -> TestCustomers.describe(manager.getCustomer(id)));
+        manager.close();
+        
+        CustomerManager reopened = new CustomerManager(dataFile);
+        try {
+            assertThat(contents(reopened)).isEqualTo(expected);
+        } finally {
+            reopened.close();
+        }
+    }
+    
+    @Test
+    void tornLogTailLosesOnlyTheLastChange() throws IOException {
+        String dataFile = dir.resolve("customers.dat").toString();
+        CustomerManager manager = new CustomerManager(dataFile);
+        manager.addCustomer("田中", "tanaka@example.com", "", "A社", "");
+        manager.addCustomer("佐藤", "sato@example.com", "", "B社", "");
+        manager.addCustomer("鈴木", "suzuki@example.com", "", "C社", "");
+        Map<Integer, String> expected = new TreeMap<>(contents(manager));
+        expected.remove(3);
+        manager.close();
+        
+        Path log = dir.resolve("customers.dat.0.log");
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+        
+        CustomerManager reopened = new CustomerManager(dataFile);
+        try {
+            assertThat(contents(reopened)).isEqualTo(expected);
+            reopened.addCustomer("高橋", "takahashi@example.com", "", "D社", "");
+            expected = contents(reopened);
+        } finally {
+            reopened.close();
+        }
+        
+        CustomerManager again = new CustomerManager(dataFile);
+        try {
+            assertThat(contents(again)).isEqualTo(expected).containsKeys(1, 2, 3);
+        } finally {
+            again.close();
+        }
+    }
+    
+    @Test
+    void replaysLogsFromTheSnapshotGenerationAndDeletesOlderFiles() throws IOException {
+        String dataFile = dir.resolve("customers.dat").toString();
+        // 世代 2 のスナップショットへ置き換えた後、古いファイルを削除する前に終了した状態
+        writeSnapshot(dir.resolve("customers.dat"), 0, TestCustomers.customer(1, "初期"));
+        writeSnapshot(dir.resolve("customers.dat.1.snapshot"), 1, TestCustomers.customer(1, "世代1"));
+        writeSnapshot(dir.resolve("customers.dat.2.snapshot"), 2,
+            TestCustomers.customer(1, "世代2"), TestCustomers.customer(2, "世代2"), TestCustomers.customer(5, "世代2"));
+        writeLog(dir.resolve("customers.dat.1.log"), log -> {
+            // スナップショットに反映済みなので再生しない
+            log.put(TestCustomers.customer(1, "古いログ"));
+            log.put(TestCustomers.customer(99, "古いログ"));
+        });
+        writeLog(dir.resolve("customers.dat.2.log"), log -> {
+            log.put(TestCustomers.customer(2, "ログ2"));
+            log.delete(5);
+            log.put(TestCustomers.customer(6, "ログ2"));
+        });
+        writeLog(dir.resolve("customers.dat.3.log"), log -> {
+            log.put(TestCustomers.customer(6, "ログ3"));
+            log.put(TestCustomers.customer(7, "ログ3"));
+        });
+        
+        CustomerManager manager = new CustomerManager(dataFile);
+        try {
+            assertThat(contents(manager)).isEqualTo(TestCustomers.describeAll(Map.of(
+                1, TestCustomers.customer(1, "世代2"),
+                2, TestCustomers.customer(2, "ログ2"),
+                6, TestCustomers.customer(6, "ログ3"),
+                7, TestCustomers.customer(7, "ログ3"))));
+            assertThat(manager.addCustomer("新規", "", "", "", "").getId()).isEqualTo(8);
+        } finally {
+            manager.close();
+        }
+        assertThat(fileNames()).containsExactly(
+            "customers.dat.2.log", "customers.dat.2.snapshot", "customers.dat.3.log");
+    }
+    
+    @Test
+    void compactionWhileWritingKeepsEveryChange() throws IOException {
+        String dataFile = dir.resolve("customers.dat").toString();
+        Random random = new Random(42);
+        Map<Integer, String> expected = new TreeMap<>();
+        List<Integer> ids = new ArrayList<>();
+        CustomerManager manager = new CustomerManager(dataFile);
+        try {
+            for (int i = 0; i < 6000; i++) {
+                int operation = random.nextInt(10);
+                if (operation < 6 || ids.isEmpty()) {
+                    Customer customer = manager.addCustomer("顧客" + i, "c" + i + "@example.com",
+                        "090-1234-5678", "会社" + random.nextInt(20), "東京都千代田区" + i);
+                    ids.add(customer.getId());
+                    expected.put(customer.getId(), TestCustomers.describe(customer));
+                } else if (operation < 9) {
+                    int id = ids.get(random.nextInt(ids.size()));
+                    assertThat(manager.updateCustomer(id, "更新" + i, null, null, "会社" + random.nextInt(20), null,
+                        "メモ" + i)).isTrue();
+                    expected.put(id, TestCustomers.describe(manager.getCustomer(id)));
+                } else {
+                    int id = ids.remove(random.nextInt(ids.size()));
+                    assertThat(manager.deleteCustomer(id)).isTrue();
+                    expected.remove(id);
+                }
+                if (i % 500 == 0) {
+                    assertThat(contents(manager)).isEqualTo(expected);
+                }
+            }
+            assertThat(contents(manager)).isEqualTo(expected);
+        } finally {
+            manager.close();
+        }
+        
+        List<String> files = fileNames();
+        assertThat(files).hasSize(2);
+        String snapshot = files.stream().filter(name -> name.endsWith(".snapshot")).findFirst().orElseThrow();
+        long generation = Long.parseLong(snapshot.split("\\.")[2]);
+        // 何度かコンパクションされ、最後のスナップショットと同じ世代のログだけが残る
+        assertThat(generation).isGreaterThan(1);
+        assertThat(files).containsExactly("customers.dat." + generation + ".log", snapshot);
+        
+        CustomerManager reopened = new CustomerManager(dataFile);
+        try {
+            assertThat(contents(reopened)).isEqualTo(expected);
+            assertThat(reopened.getCustomerCount()).isEqualTo(expected.size());
+        } finally {
+            reopened.close();
+        }
+    }
+    
+    private static Map<Integer, String> contents(CustomerManager manager) {
+        Map<Integer, Customer> customers = new TreeMap<>();
+        for (Customer customer : manager.getCustomersAfter(0, Integer.MAX_VALUE)) {
+            customers.put(customer.getId(), customer);
+        }
+        return TestCustomers.describeAll(customers);
+    }
+    
+    private List<String> fileNames() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.map(file -> file.getFileName().toString()).sorted().toList();
+        }
+    }
+    
+    private static void writeSnapshot(Path path, long generation, Customer... customers) throws IOException {
+        try (CustomerSnapshotFile.Writer writer = CustomerSnapshotFile.createWriter(path, generation)) {
+            for (Customer customer : customers) {
+                writer.write(customer);
+            }
+            writer.commit();
+        }
+    }
+    
+    private static void writeLog(Path path, LogWriter body) throws IOException {
+        try (CustomerLog log = CustomerLog.open(path, CustomerLog.SyncPolicy.NEVER)) {
+            body.write(log);
+        }
+    }
+    
+    private interface LogWriter {
+        void write(CustomerLog log) throws IOException;
+    }
+}
@@ -0,0 +1,135 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * スナップショットの書き込みと、現行・バージョン 1・旧形式（シリアライズした HashMap）の読み込み
+ */
+class CustomerSnapshotFileTest {
+    
+    @TempDir
+    Path dir;
+    
+    private final Map<Integer, Customer> customers = new TreeMap<>(Map.of(
+        1, TestCustomers.customer(1, "田中"),
+        2, TestCustomers.customer(2, "佐藤"),
+        7, new Customer(7, "鈴木", null, "", null, "", TestCustomers.REGISTERED, null, null)));
+    
+    @Test
+    void writtenSnapshotIsReadBackMapped() throws IOException {
+        Path path = dir.resolve("customers.dat.3.snapshot");
+        try (CustomerSnapshotFile.Writer writer = CustomerSnapshotFile.createWriter(path, 3)) {
+            for (Customer customer : customers.values()) {
+                writer.write(customer);
+            }
+            writer.commit();
+        }
+        
+        CustomerSnapshotFile.Contents contents = CustomerSnapshotFile.read(path);
+        assertThat(contents.getGeneration()).isEqualTo(3);
+        MappedCustomerMap read = contents.getCustomers();
+        assertThat(read.size()).isEqualTo(3);
+        assertThat(read.maxId()).isEqualTo(7);
+        assertThat(TestCustomers.describeAll(read)).isEqualTo(TestCustomers.describeAll(customers));
+        assertThat(read.valuesAfter(1, 10)).extracting(Customer::getId).containsExactly(2, 7);
+        assertThat(read.get(3)).isNull();
+        assertThat(fileNames()).containsExactly("customers.dat.3.snapshot");
+    }
+    
+    @Test
+    void readsVersion1Files() throws IOException {
+        Path path = dir.resolve("customers.dat");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeInt(CustomerSnapshotFile.MAGIC);
+            out.writeInt(1);
+            out.writeLong(5);
+            out.writeInt(customers.size());
+            for (Customer customer : customers.values()) {
+                CustomerCodec.write(out, customer);
+            }
+        }
+        
+        CustomerSnapshotFile.Contents contents = CustomerSnapshotFile.read(path);
+        assertThat(contents.getGeneration()).isEqualTo(5);
+        assertThat(contents.getCustomers().maxId()).isEqualTo(7);
+        assertThat(TestCustomers.describeAll(contents.getCustomers())).isEqualTo(TestCustomers.describeAll(customers));
+    }
+    
+    @Test
+    void readsLegacySerializedFilesAsGeneration0() throws IOException {
+        Path path = dir.resolve("customers.dat");
+        try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeObject(new HashMap<>(customers));
+        }
+        
+        CustomerSnapshotFile.Contents contents = CustomerSnapshotFile.read(path);
+        assertThat(contents.getGeneration()).isZero();
+        assertThat(contents.getCustomers().maxId()).isEqualTo(7);
+        assertThat(TestCustomers.describeAll(contents.getCustomers())).isEqualTo(TestCustomers.describeAll(customers));
+    }
+    
+    @Test
+    void missingFileIsReadAsNull() throws IOException {
+        assertThat(CustomerSnapshotFile.read(dir.resolve("customers.dat"))).isNull();
+    }
+    
+    @Test
+    void rejectsUnknownFormatsAndTruncatedFiles() throws IOException {
+        Path unknown = dir.resolve("unknown.dat");
+        Files.write(unknown, new byte[] {1, 2, 3, 4, 5, 6, 7, 8});
+        assertThatThrownBy(() -> CustomerSnapshotFile.read(unknown)).isInstanceOf(IOException.class);
+        
+        Path path = dir.resolve("customers.dat.1.snapshot");
+        try (CustomerSnapshotFile.Writer writer = CustomerSnapshotFile.createWriter(path, 1)) {
+            for (Customer customer : customers.values()) {
+                writer.write(customer);
+            }
+            writer.commit();
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 1);
+        }
+        assertThatThrownBy(() -> CustomerSnapshotFile.read(path)).isInstanceOf(IOException.class);
+    }
+    
+    @Test
+    void idsMustBeWrittenInAscendingOrder() throws IOException {
+        try (CustomerSnapshotFile.Writer writer = CustomerSnapshotFile.createWriter(dir.resolve("customers.dat.1.snapshot"), 1)) {
+            writer.write(TestCustomers.customer(2, "佐藤"));
+            assertThatThrownBy(() -> writer.write(TestCustomers.customer(1, "田中")))
+                .isInstanceOf(IllegalStateException.class);
+            assertThatThrownBy(() -> writer.write(TestCustomers.customer(2, "佐藤")))
+                .isInstanceOf(IllegalStateException.class);
+        }
+    }
+    
+    @Test
+    void uncommittedWriterLeavesNoFile() throws IOException {
+        try (CustomerSnapshotFile.Writer writer = CustomerSnapshotFile.createWriter(dir.resolve("customers.dat.1.snapshot"), 1)) {
+            writer.write(TestCustomers.customer(1, "田中"));
+        }
+        assertThat(fileNames()).isEmpty();
+    }
+    
+    private List<String> fileNames() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.map(file -> file.getFileName().toString()).sorted().toList();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 変更を続けながらのスナップショットの書き出しと切り替え（chunkAfter → takeChanges → prepareRebase → rebase）
+ *
+ * 各段階の間に登録・更新・削除・読み込みを挟み、切り替えた後のマップが同じ変更を加えた TreeMap と一致することを確かめる。
+ */
+class MappedCustomerMapTest {
+    
+    private static final int CHUNK_SIZE = 7;
+    
+    @TempDir
+    Path dir;
+    
+    private Random random;
+    private MappedCustomerMap map;
+    private final TreeMap<Integer, Customer> expected = new TreeMap<>();
+    private final List<Integer> liveIds = new ArrayList<>();
+    private int nextId = 1;
+    private int step;
+    
+    @ParameterizedTest
+    @ValueSource(longs = {1, 2, 3, 4, 5, 6, 7, 8})
+    void rebasedMapMatchesTheChangesMadeWhileWriting(long seed) throws IOException {
+        random = new Random(seed);
+        map = new MappedCustomerMap();
+        for (int i = 0; i < 200; i++) {
+            add();
+        }
+        assertSameContents();
+        
+        for (int generation = 1; generation <= 4; generation++) {
+            map.beginSnapshot();
+            Path path = dir.resolve("customers.dat." + generation + ".snapshot");
+            try (CustomerSnapshotFile.Writer writer = CustomerSnapshotFile.createWriter(path, generation)) {
+                int afterId = 0;
+                while (true) {
+                    MappedCustomerMap.Chunk chunk = map.chunkAfter(afterId, CHUNK_SIZE);
+                    // 取り出した顧客の書き出しより先に変更されてもよい
+                    modify(random.nextInt(4));
+                    if (chunk.isEmpty()) {
+                        break;
+                    }
+                    chunk.writeTo(writer);
+                    afterId = chunk.lastId();
+                }
+                writer.commit();
+            }
+            MappedCustomerMap snapshot = CustomerSnapshotFile.read(path).getCustomers();
+            
+            modify(30);
+            Map<Integer, Customer> taken = map.takeChanges();
+            modify(30);
+            map.prepareRebase(snapshot, taken);
+            modify(30);
+            map = map.rebase(snapshot);
+            assertSameContents();
+            
+            // 切り替えた後も（次の書き出しまで）普通に使える
+            modify(50);
+            assertSameContents();
+        }
+    }
+    
+    private void modify(int count) {
+        for (int i = 0; i < count; i++) {
+            step++;
+            int operation = random.nextInt(10);
+            if (operation < 2 || liveIds.isEmpty()) {
+                add();
+            } else if (operation < 6) {
+                int id = liveIds.get(random.nextInt(liveIds.size()));
+                Customer customer = TestCustomers.customer(id, "更新" + step);
+                assertThat(map.put(id, customer)).isNotNull();
+                expected.put(id, customer);
+            } else if (operation < 8) {
+                int id = liveIds.remove(random.nextInt(liveIds.size()));
+                assertThat(map.remove(id)).isNotNull();
+                expected.remove(id);
+            } else {
+                // スナップショットの顧客を読み込んで保持させる（削除済みの ID も含む）
+                int id = 1 + random.nextInt(nextId);
+                assertThat(TestCustomers.describe(map.get(id))).isEqualTo(TestCustomers.describe(expected.get(id)));
+            }
+        }
+    }
+    
+    private void add() {
+        int id = nextId++;
+        Customer customer = TestCustomers.customer(id, "顧客" + id);
+        assertThat(map.put(id, customer)).isNull();
+        expected.put(id, customer);
+        liveIds.add(id);
+    }
+    
+    private void assertSameContents() {
+        Map<Integer, String> described = TestCustomers.describeAll(expected);
+        assertThat(map.size()).isEqualTo(expected.size());
+        assertThat(TestCustomers.describeAll(map)).isEqualTo(described);
+        Map<Integer, Customer> inOrder = new TreeMap<>();
+        List<Customer> values = map.valuesAfter(0, Integer.MAX_VALUE);
+        for (Customer customer : values) {
+            inOrder.put(customer.getId(), customer);
+        }
+        assertThat(values).extracting(Customer::getId).isSorted();
+        assertThat(TestCustomers.describeAll(inOrder)).isEqualTo(described);
+        for (int id = 1; id < nextId; id++) {
+            assertThat(map.containsKey(id)).isEqualTo(expected.containsKey(id));
+        }
+        int maxId = expected.isEmpty() ? 0 : expected.lastKey();
+        assertThat(map.maxId()).isEqualTo(maxId);
+    }
+}
@@ -0,0 +1,50 @@
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * CLI版のテスト用の顧客の作成と比較
+ *
+ * 日時はスナップショット・更新ログに秒単位で保存されるため、比較では秒未満を切り捨てる。
+ */
+final class TestCustomers {
+    
+    static final LocalDateTime REGISTERED = LocalDateTime.of(2024, 4, 1, 9, 30, 15);
+    
+    private TestCustomers() {
+    }
+    
+    static Customer customer(int id, String name) {
+        return new Customer(id, name, name + "@example.com", "090-0000-" + String.format("%04d", id % 10000),
+            "会社" + (id % 7), "東京都", REGISTERED.plusMinutes(id), REGISTERED.plusDays(1), "メモ" + id);
+    }
+    
+    /**
+     * 比較用の文字列（全項目、日時は秒単位）
+     */
+    static String describe(Customer customer) {
+        if (customer == null) {
+            return null;
+        }
+        return customer.getId() + "|" + customer.getName() + "|" + customer.getEmail() + "|" + customer.getPhone()
+            + "|" + customer.getCompany() + "|" + customer.getAddress()
+            + "|" + truncate(customer.getRegisteredDate()) + "|" + truncate(customer.getLastContactDate())
+            + "|" + customer.getNotes();
+    }
+    
+    /**
+     * 顧客ID → 比較用の文字列（ID 順）
+     */
+    static Map<Integer, String> describeAll(Map<Integer, Customer> customers) {
+        Map<Integer, String> result = new TreeMap<>();
+        for (Map.Entry<Integer, Customer> entry : customers.entrySet()) {
+            result.put(entry.getKey(), describe(entry.getValue()));
+        }
+        return result;
+    }
+    
+    private static LocalDateTime truncate(LocalDateTime value) {
+        return value != null ? value.truncatedTo(ChronoUnit.SECONDS) : null;
+    }
+}
@@ -0,0 +1,204 @@
+package com.example.crm.search;
+
+import com.example.crm.dto.Suggestion;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 前方一致の入力候補 - 登録・削除を繰り返した後の候補が、全件から求めた上位 k 件と一致することを確かめる
+ */
+class PrefixSuggesterTest {
+    
+    /** 正規化すると同じキーになる表記を含む（大文字・カタカナ） */
+    private static final String[] LETTERS = {"a", "A", "b", "B", "あ", "ア"};
+    
+    @Test
+    void topIsKeptOnceTheSubtreeExceedsK() {
+        PrefixSuggester suggester = new PrefixSuggester(2);
+        suggester.add("ab", 1);
+        suggester.add("a", 1);
+        assertThat(describe(suggester.suggest("a", 10))).containsExactly("a=1", "ab=1");
+        
+        // 部分木の値が k を超える
+        suggester.add("abc", 5);
+        assertThat(describe(suggester.suggest("a", 10))).containsExactly("abc=5", "a=1");
+        suggester.add("ab", 5);
+        assertThat(describe(suggester.suggest("a", 10))).containsExactly("ab=6", "abc=5");
+        
+        // k 以下に戻る
+        for (int i = 0; i < 5; i++) {
+            suggester.remove("abc");
+        }
+        assertThat(describe(suggester.suggest("a", 10))).containsExactly("ab=6", "a=1");
+        assertThat(suggester.size()).isEqualTo(2);
+    }
+    
+    @Test
+    void valueDroppingOutOfTheTopIsReplacedFromTheRest() {
+        PrefixSuggester suggester = new PrefixSuggester(2);
+        suggester.add("x1", 3);
+        suggester.add("x2", 2);
+        suggester.add("x3", 1);
+        suggester.add("y", 9);
+        assertThat(describe(suggester.suggest("x", 2))).containsExactly("x1=3", "x2=2");
+        
+        suggester.remove("x1");
+        suggester.remove("x1");
+        assertThat(describe(suggester.suggest("x", 2))).containsExactly("x2=2", "x1=1");
+        suggester.remove("x1");
+        assertThat(describe(suggester.suggest("x", 2))).containsExactly("x2=2", "x3=1");
+        assertThat(describe(suggester.suggest("x1", 2))).isEmpty();
+    }
+    
+    @Test
+    void removedBranchesArePrunedAndCanBeAddedAgain() {
+        PrefixSuggester suggester = new PrefixSuggester(3);
+        suggester.add("abcd", 1);
+        suggester.add("ab", 1);
+        suggester.remove("abcd");
+        assertThat(suggester.size()).isEqualTo(1);
+        assertThat(describe(suggester.suggest("abc", 3))).isEmpty();
+        assertThat(describe(suggester.suggest("a", 3))).containsExactly("ab=1");
+        
+        suggester.remove("ab");
+        assertThat(suggester.size()).isZero();
+        assertThat(describe(suggester.suggest("a", 3))).isEmpty();
+        
+        suggester.add("abx", 2);
+        assertThat(describe(suggester.suggest("ab", 3))).containsExactly("abx=2");
+    }
+    
+    @Test
+    void ignoresEmptyValuesAndUnknownRemovals() {
+        PrefixSuggester suggester = new PrefixSuggester(3);
+        suggester.add("", 1);
+        suggester.add(null, 1);
+        suggester.add("a", 0);
+        suggester.remove("a");
+        suggester.remove(null);
+        assertThat(suggester.size()).isZero();
+        assertThat(suggester.suggest("", 3)).isEmpty();
+        assertThat(suggester.suggest(null, 3)).isEmpty();
+    }
+    
+    @ParameterizedTest
+    @CsvSource({"1, 1", "2, 2", "3, 3", "3, 4", "5, 5", "8, 6"})
+    void matchesBruteForceAfterRandomAddsAndRemoves(int k, long seed) {
+        Random random = new Random(seed);
+        PrefixSuggester suggester = new PrefixSuggester(k);
+        BruteForce expected = new BruteForce();
+        for (int step = 0; step < 3000; step++) {
+            String value = randomValue(random);
+            if (random.nextInt(10) < 6) {
+                int count = 1 + random.nextInt(3);
+                suggester.add(value, count);
+                expected.add(value, count);
+            } else {
+                // 登録済みの値を多めに削除する（登録されていない値の削除は何もしない）
+                List<String> keys = new ArrayList<>(expected.values.keySet());
+                if (!keys.isEmpty() && random.nextBoolean()) {
+                    value = keys.get(random.nextInt(keys.size()));
+                }
+                suggester.remove(value);
+                expected.remove(value);
+            }
+            
+            assertThat(suggester.size()).isEqualTo(expected.values.size());
+            String key = SearchKeys.normalize(value);
+            for (int length = 1; length <= key.length(); length++) {
+                String prefix = key.substring(0, length);
+                int limit = 1 + random.nextInt(k + 2);
+                assertThat(describe(suggester.suggest(prefix, limit)))
+                    .as("k=%d step=%d prefix=%s limit=%d", k, step, prefix, limit)
+                    .isEqualTo(expected.suggest(prefix, Math.min(limit, k)));
+            }
+            if (step % 100 == 0) {
+                for (String prefix : allPrefixes()) {
+                    assertThat(describe(suggester.suggest(prefix, k)))
+                        .as("k=%d step=%d prefix=%s", k, step, prefix)
+                        .isEqualTo(expected.suggest(prefix, k));
+                }
+            }
+        }
+    }
+    
+    private static String randomValue(Random random) {
+        int length = 1 + random.nextInt(4);
+        StringBuilder value = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            value.append(LETTERS[random.nextInt(LETTERS.length)]);
+        }
+        return value.toString();
+    }
+    
+    /**
+     * 長さ 2 までの接頭辞（正規化後）
+     */
+    private static List<String> allPrefixes() {
+        String[] letters = {"a", "b", "あ"};
+        List<String> prefixes = new ArrayList<>();
+        for (String first : letters) {
+            prefixes.add(first);
+            for (String second : letters) {
+                prefixes.add(first + second);
+            }
+        }
+        return prefixes;
+    }
+    
+    private static List<String> describe(List<Suggestion> suggestions) {
+        List<String> described = new ArrayList<>();
+        for (Suggestion suggestion : suggestions) {
+            described.add(suggestion.getValue() + "=" + suggestion.getCount());
+        }
+        return described;
+    }
+    
+    /**
+     * 全件を並べ替えて上位を求める参照実装
+     */
+    private static final class BruteForce {
+        /** 正規化キー → 値 */
+        final Map<String, Term> values = new HashMap<>();
+        
+        void add(String value, int count) {
+            Term term = values.computeIfAbsent(SearchKeys.normalize(value), key -> new Term());
+            term.value = value;
+            term.count += count;
+        }
+        
+        void remove(String value) {
+            String key = SearchKeys.normalize(value);
+            Term term = values.get(key);
+            if (term != null && --term.count == 0) {
+                values.remove(key);
+            }
+        }
+        
+        List<String> suggest(String prefix, int limit) {
+            return values.entrySet().stream()
+                .filter(entry -> entry.getKey().startsWith(prefix))
+                .sorted(Comparator.<Map.Entry<String, Term>>comparingInt(entry -> -entry.getValue().count)
+                    .thenComparing(Map.Entry::getKey))
+                .limit(limit)
+                .map(entry -> entry.getValue().value + "=" + entry.getValue().count)
+                .toList();
+        }
+    }
+    
+    private static final class Term {
+        /** 最後に登録した表記 */
+        String value;
+        int count;
+    }
+}